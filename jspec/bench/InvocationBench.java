@@ -0,0 +1,111 @@
+package jspec.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import jspec.lib.Group;
+
+// Compares calling tiny tests through Method.invoke, as Group used to, against
+// calling them through a cached MethodHandle, as Group does now.
+//
+// Run with `make bench`. Each case is warmed up before being measured & the
+// best of several rounds is reported, in nanoseconds per test call.
+public class InvocationBench {
+  static int warmupRounds = 10;
+  static int rounds = 10;
+  static int calls = 1_000_000;
+
+  public static class Tiny extends Group {
+    public int count = 0;
+
+    public void testPasses() {
+      ++this.count;
+    }
+
+    public void testFails() {
+      throw new AssertionError("fails");
+    }
+  }
+
+  interface Call {
+    void call(Group group) throws Throwable;
+  }
+
+  public static void main(String[] args) throws Exception {
+    Tiny tiny = new Tiny();
+    Method passes = Tiny.class.getDeclaredMethod("testPasses");
+    Method fails = Tiny.class.getDeclaredMethod("testFails");
+    MethodHandle passesHandle = InvocationBench.handleFor(passes);
+    MethodHandle failsHandle = InvocationBench.handleFor(fails);
+
+    InvocationBench.report("Method.invoke, passing", tiny, (group) -> {
+      passes.invoke(group);
+    });
+    InvocationBench.report("MethodHandle, passing", tiny, (group) -> {
+      passesHandle.invokeExact(group);
+    });
+    InvocationBench.report("Method.invoke, failing", tiny, (group) -> {
+      try {
+        fails.invoke(group);
+      } catch (InvocationTargetException exc) {
+        InvocationBench.consume(exc.getTargetException());
+      }
+    });
+    InvocationBench.report("MethodHandle, failing", tiny, (group) -> {
+      try {
+        failsHandle.invokeExact(group);
+      } catch (AssertionError exc) {
+        InvocationBench.consume(exc);
+      }
+    });
+
+    // keep the JIT from throwing the passing calls away
+    System.out.println("(" + tiny.count + " calls made)");
+  }
+
+  static MethodHandle handleFor(Method test) throws IllegalAccessException {
+    return MethodHandles
+      .lookup()
+      .unreflect(test)
+      .asType(MethodType.methodType(void.class, Group.class));
+  }
+
+  static void report(String name, Group group, Call call) throws Exception {
+    for (int i = 0; i < InvocationBench.warmupRounds; i++) {
+      InvocationBench.measure(group, call);
+    }
+
+    long best = Long.MAX_VALUE;
+    for (int i = 0; i < InvocationBench.rounds; i++) {
+      best = Math.min(best, InvocationBench.measure(group, call));
+    }
+
+    System.out.println(
+      String.format("%-26s %8.1f ns/call", name, (double)best / InvocationBench.calls));
+  }
+
+  static long measure(Group group, Call call) throws Exception {
+    long start = System.nanoTime();
+
+    try {
+      for (int i = 0; i < InvocationBench.calls; i++) {
+        call.call(group);
+      }
+    } catch (Exception exc) {
+      throw exc;
+    } catch (Throwable exc) {
+      throw new RuntimeException(exc);
+    }
+
+    return System.nanoTime() - start;
+  }
+
+  static Throwable sink;
+
+  static void consume(Throwable exc) {
+    InvocationBench.sink = exc;
+  }
+}
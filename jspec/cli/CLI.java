@@ -1,39 +1,76 @@
 package jspec.cli;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
 import java.lang.Class;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.time.Instant;
 import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.Callable;
-import javax.tools.JavaCompiler;
-import javax.tools.StandardJavaFileManager;
-import javax.tools.ToolProvider;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import jspec.vendor.picocli.CommandLine;
 import jspec.vendor.picocli.CommandLine.Command;
 import jspec.vendor.picocli.CommandLine.Option;
 import jspec.vendor.picocli.CommandLine.Parameters;
 
 import jspec.lib.Group;
+import jspec.lib.JUnitXmlReporter;
+import jspec.lib.NdjsonReporter;
+import jspec.lib.ResultsArchive;
+import jspec.lib.RunListener;
+import jspec.lib.RunLogWriter;
 import jspec.lib.Runner;
 
 @Command(
   name = "jspec",
   mixinStandardHelpOptions = true,
-  description = "Discovers & runs tests in the current directory tree."
+  description = "Discovers & runs tests in the current directory tree.",
+  subcommands = { MergeCommand.class, ReplayCommand.class, DiffCommand.class, DaemonCommand.class }
 )
 public class CLI implements Callable<Integer> {
   File cwd;
   Runner runner;
+  Shards shards;
+  // where the text report goes; stderr when the XML report is going to stdout
+  PrintStream console = System.out;
 
   @Option(
     names = { "-o", "--out", "--outfile" },
-    description = "A file to save the output to instead of printing to stdout."
+    description = "A file to save the report to instead of printing it to stdout; progress & times are still printed."
   )
   File outFile;
 
+  @Option(
+    names = {"-r", "--reporter"},
+    defaultValue = "text",
+    paramLabel = "FORMAT",
+    description = "How to report the results: `text`, `junit-xml` for CI servers, or `ndjson` for one JSON event per line, e.g. for log pipelines; the last two are written as each test finishes. Defaults to ${DEFAULT-VALUE}."
+  )
+  String reporter = "text";
+  static List<String> reporters = List.of("text", "junit-xml", "ndjson");
+
   @Option(
     names = {"-c", "--concise"},
     defaultValue = "false",
@@ -41,12 +78,156 @@ public class CLI implements Callable<Integer> {
   )
   boolean concise = false;
 
+  @Option(
+    names = {"--timings"},
+    defaultValue = "false",
+    description = "Report the wall clock time, CPU time, memory allocated & time spent in before/after hooks of every test & group, & list the top level groups from slowest to fastest. Defaults to ${DEFAULT-VALUE}."
+  )
+  boolean timings = false;
+
+  @Option(
+    names = {"--slowest"},
+    arity = "0..1",
+    defaultValue = "0",
+    fallbackValue = "10",
+    paramLabel = "N",
+    description = "List the N slowest tests & groups, w/ the p50, p90, p99 & max time taken by the tests in each group. Given without a value, lists 10. Defaults to ${DEFAULT-VALUE} (no list)."
+  )
+  int slowest = 0;
+
+  @Option(
+    names = {"-p", "--parallel"},
+    arity = "0..1",
+    defaultValue = "1",
+    fallbackValue = "0",
+    paramLabel = "N",
+    description = "Run test Groups concurrently on a pool of N threads. Given without a value, uses one thread per available processor. Defaults to ${DEFAULT-VALUE}."
+  )
+  int parallel = 1;
+
+  @Option(
+    names = {"-i", "--isolate"},
+    arity = "0..1",
+    defaultValue = "-1",
+    fallbackValue = "0",
+    paramLabel = "N",
+    description = "Run each test on a fresh instance of its Group, as its own task with at most N tests running at once. Given without a value, allows four tests per available processor."
+  )
+  int isolate = -1;
+
+  @Option(
+    names = {"-f", "--fork"},
+    arity = "0..1",
+    defaultValue = "-1",
+    fallbackValue = "0",
+    paramLabel = "N",
+    description = "Run each spec class in one of a pool of N separate JVMs, reused from one class to the next, so classes can't share static state. A JVM that crashes is replaced & its unfinished tests reported as errors. Given without a value, uses one JVM per available processor."
+  )
+  int fork = -1;
+
+  @Option(
+    names = {"-t", "--timeout"},
+    defaultValue = "0",
+    paramLabel = "MS",
+    description = "Default time limit for each test, in milliseconds; a test may set its own in a `timeout<Name>` field. A test that runs over is reported as timed out & abandoned. Defaults to ${DEFAULT-VALUE} (no limit)."
+  )
+  long testTimeout = 0;
+
+  @Option(
+    names = {"--group-timeout"},
+    defaultValue = "0",
+    paramLabel = "MS",
+    description = "Default time limit for all the tests in a Group, in milliseconds; a Group may set its own in a `timeout` field. Defaults to ${DEFAULT-VALUE} (no limit)."
+  )
+  long groupTimeout = 0;
+
+  @Option(
+    names = {"--run-timeout"},
+    defaultValue = "0",
+    paramLabel = "MS",
+    description = "Time limit for the whole run, in milliseconds; any test not finished in time is reported as timed out. Defaults to ${DEFAULT-VALUE} (no limit)."
+  )
+  long runTimeout = 0;
+
+  @Option(
+    names = {"-x", "--fail-fast"},
+    defaultValue = "false",
+    description = "Stop starting new tests after the first failure & report on the tests that did run. Same as --max-failures=1."
+  )
+  boolean failFast = false;
+
+  @Option(
+    names = {"--max-failures"},
+    defaultValue = "0",
+    paramLabel = "N",
+    description = "Stop starting new tests once N tests have failed & report on the tests that did run. Defaults to ${DEFAULT-VALUE} (never stop early)."
+  )
+  int maxFailures = 0;
+
+  @Option(
+    names = {"--shard"},
+    paramLabel = "I/N",
+    description = "Split the spec classes into N shards, balanced by how long each took on previous runs, & only run the I-th. Its results are saved to be combined with `jspec merge`."
+  )
+  String shard;
+
+  @Option(
+    names = {"--save"},
+    paramLabel = "FILE",
+    description = "Save the results to FILE, to be combined with others with `jspec merge`. When running a shard, defaults to `.jspec/shard-I-of-N.results`."
+  )
+  File saveFile;
+
+  @Option(
+    names = {"--log"},
+    arity = "0..1",
+    fallbackValue = "",
+    paramLabel = "FILE",
+    description = "Write a compact binary log of the run to FILE as tests finish, to report on again with `jspec replay` or compare with another run with `jspec diff`. Given without a value, writes `.jspec/runs/<date>-<time>.log`."
+  )
+  String logFile;
+
+  @Option(
+    names = {"--in-memory"},
+    defaultValue = "false",
+    description = "Compile the specs in memory & load them from there, writing no class files at all, e.g. on a slow network drive or to keep the workspace untouched. Can't be used with --fork. Defaults to ${DEFAULT-VALUE}."
+  )
+  boolean inMemory = false;
+
+  @Option(
+    names = {"--exclude"},
+    paramLabel = "GLOB",
+    description = "Leave out test files matching GLOB, relative to the current directory; may be given more than once. Directories are skipped whole, e.g. by `**/generated/**`, as are any ignored by .gitignore or .jspecignore files."
+  )
+  List<String> excludes = new ArrayList<String>();
+
+  @Option(
+    names = {"--no-default-excludes"},
+    negatable = false,
+    description = "Also search .git, .jspec, node_modules & the like, & build, target & vendor at the top of the tree, which are skipped by default."
+  )
+  boolean noDefaultExcludes = false;
+
+  @Option(
+    names = {"-w", "--watch"},
+    defaultValue = "false",
+    description = "Keep watching the current directory tree after the run, & whenever sources change run again only the spec classes that use them, compiled again on their own, until stopped. Defaults to ${DEFAULT-VALUE}."
+  )
+  boolean watch = false;
+
+  // set when runs are served by a daemon, which can't be kept watching
+  static boolean daemon = false;
+
+  // how long to wait for more changes before running, as saving or checking
+  // out files changes many at once
+  static final long debounceMillis = 200;
+
   @Parameters(
-    index = "0",
-    defaultValue = "**/*Spec.java",
-    description = "Glob pattern for finding test files,\ndefaults to `${DEFAULT-VALUE}`."
+    index = "0..*",
+    paramLabel = "PATTERN",
+    description = "Glob patterns for finding test files, relative to the current directory,\ndefaults to `**/*Spec.java`."
   )
-  String pattern;
+  List<String> patterns = new ArrayList<String>(List.of("**/*Spec.java"));
 
   public static void main(String[] args) {
     int exitCode = new CommandLine(new CLI()).execute(args);
@@ -60,11 +241,58 @@ public class CLI implements Callable<Integer> {
 
   @Override
   public Integer call() {
+    // check options before doing any work
+    try {
+      this.configure();
+    } catch (InvalidArgumentError exc) {
+      System.err.println(exc.getMessage());
+      return 2;
+    }
+
+    // a log w/o a name given gets a new one each time round when watching
+    boolean datedLog = this.logFile != null && this.logFile.isEmpty();
+
+    this.runOnce(null);
+    if (!this.watch) return 0;
+
+    try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+      this.register(watcher, this.cwd.toPath());
+
+      while (true) {
+        this.console.println();
+        this.console.println("Watching " + this.cwd + " for changes...");
+
+        Set<Path> changed;
+        do {
+          changed = this.changes(watcher);
+        } while (changed != null && changed.isEmpty());
+
+        // only the options are kept, the last run's results are dropped
+        this.runner = new Runner();
+        if (datedLog) this.logFile = "";
+        this.configure();
+
+        this.runOnce(changed);
+      }
+    } catch (IOException exc) {
+      System.err.println("Unable to watch " + this.cwd + " for changes: " + exc);
+      return 2;
+    } catch (InvalidArgumentError exc) {
+      System.err.println(exc.getMessage());
+      return 2;
+    } catch (InterruptedException exc) {
+      return 0;
+    }
+  }
+
+  // discovers, compiles & runs the specs, only those that use the sources
+  // changed if given
+  private void runOnce(Set<Path> changed) {
     // start tracking time
     Instant start = Instant.now();
 
     // discover & compile test classes
-    this.discover(this.cwd, this.pattern);
+    if (!this.discover(this.cwd, changed)) return;
 
     // mark time compilation & discovery was completed
     Instant compiled = Instant.now();
@@ -81,34 +309,280 @@ public class CLI implements Callable<Integer> {
 
     // report times to user
     // first report total time
-    System.out.println("Total time: " + totalTime.toMillis() + " ms");
+    this.console.println("Total time: " + totalTime.toMillis() + " ms");
     // then compilation time
-    System.out.println("Test discovery/compilation time: " + compileTime.toMillis() + " ms");
+    this.console.println("Test discovery/compilation time: " + compileTime.toMillis() + " ms");
     // then run time
-    System.out.println("Test execution time: " + runTime.toMillis() + " ms");
+    this.console.println("Test execution time: " + runTime.toMillis() + " ms");
+  }
+
+  // watches every directory from the given one down, except those skipped by
+  // default; excluded & ignored ones are still watched, as specs may use
+  // sources in them
+  private void register(WatchService watcher, Path start) throws IOException {
+    Path root = this.cwd.toPath();
+
+    Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+        if (!dir.equals(root)) {
+          if (dir.getFileName().toString().equals(".jspec")
+            || !CLI.this.noDefaultExcludes && Crawler.excludedByDefault(root, dir))
+            return FileVisitResult.SKIP_SUBTREE;
+        }
+
+        dir.register(
+          watcher,
+          StandardWatchEventKinds.ENTRY_CREATE,
+          StandardWatchEventKinds.ENTRY_DELETE,
+          StandardWatchEventKinds.ENTRY_MODIFY);
+
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFileFailed(Path file, IOException exc) {
+        // gone already, or unreadable, either way nothing to watch
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  // the Java sources changed in the next burst of changes, once they've
+  // stopped for a moment; null if there were too many to tell which
+  private Set<Path> changes(WatchService watcher) throws IOException, InterruptedException {
+    HashSet<Path> changed = new HashSet<Path>();
+    boolean overflowed = false;
+
+    WatchKey key = watcher.take();
+    while (key != null) {
+      Path dir = (Path) key.watchable();
+
+      for (WatchEvent<?> event : key.pollEvents()) {
+        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+          overflowed = true;
+          continue;
+        }
+
+        Path path = dir.resolve((Path) event.context());
+        // new directories are watched too; any specs already in them are
+        // found by the crawl anyway
+        if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE
+          && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS))
+          this.register(watcher, path);
+        else if (path.toString().endsWith(".java"))
+          changed.add(path);
+      }
 
-    return 0;
+      key.reset();
+      key = watcher.poll(CLI.debounceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    return overflowed ? null : changed;
+  }
+
+  private void configure() throws InvalidArgumentError {
+    if (this.parallel < 0)
+      throw new InvalidArgumentError(
+        "--parallel",
+        Integer.toString(this.parallel),
+        "Must be a positive number of threads");
+
+    // no value given means use every available processor
+    this.runner.parallel(
+      this.parallel == 0
+        ? Runtime.getRuntime().availableProcessors()
+        : this.parallel);
+
+    // not given at all means tests share their Group & run in order
+    if (this.isolate < -1)
+      throw new InvalidArgumentError(
+        "--isolate",
+        Integer.toString(this.isolate),
+        "Must be a positive number of concurrent tests");
+
+    if (this.isolate == 0)
+      this.runner.isolate(4 * Runtime.getRuntime().availableProcessors());
+    else if (this.isolate > 0)
+      this.runner.isolate(this.isolate);
+
+    if (this.fork < -1)
+      throw new InvalidArgumentError(
+        "--fork",
+        Integer.toString(this.fork),
+        "Must be a positive number of JVMs");
+
+    if (this.watch && CLI.daemon)
+      throw new InvalidArgumentError(
+        "--watch",
+        "in the daemon",
+        "Run `jspec --watch` on its own instead, it keeps its JVM warm too");
+
+    if (this.fork >= 0 && this.inMemory)
+      throw new InvalidArgumentError(
+        "--fork",
+        "with --in-memory",
+        "Forked JVMs can't load classes compiled in memory");
+
+    if (this.fork == 0)
+      this.runner.fork(Runtime.getRuntime().availableProcessors());
+    else if (this.fork > 0)
+      this.runner.fork(this.fork);
+
+    if (this.testTimeout < 0 || this.groupTimeout < 0 || this.runTimeout < 0)
+      throw new InvalidArgumentError(
+        "--timeout",
+        this.testTimeout + "/" + this.groupTimeout + "/" + this.runTimeout,
+        "Time limits can't be negative");
+
+    this.runner.timeouts(this.testTimeout, this.groupTimeout, this.runTimeout);
+
+    if (this.maxFailures < 0)
+      throw new InvalidArgumentError(
+        "--max-failures",
+        Integer.toString(this.maxFailures),
+        "Must be a positive number of failures");
+
+    this.runner.maxFailures(this.failFast ? 1 : this.maxFailures);
+    this.runner.timings(this.timings);
+
+    if (this.slowest < 0)
+      throw new InvalidArgumentError(
+        "--slowest",
+        Integer.toString(this.slowest),
+        "Must be a positive number of tests");
+
+    this.runner.slowest(this.slowest);
+
+    if (!CLI.reporters.contains(this.reporter))
+      throw new InvalidArgumentError(
+        "--reporter",
+        this.reporter,
+        "Must be one of `text`, `junit-xml` or `ndjson`");
+
+    // XML or JSON on stdout would be broken up by anything else printed there
+    if (!this.reporter.equals("text") && this.outFile == null)
+      this.console = System.err;
+
+    // each run gets its own log, named for when it started
+    if (this.logFile != null && this.logFile.isEmpty())
+      this.logFile = new File(
+        this.cwd,
+        ".jspec/runs/"
+          + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"))
+          + ".log").getPath();
+
+    if (this.shard != null) {
+      this.shards = Shards.parse(this.shard);
+
+      if (this.saveFile == null)
+        this.saveFile = new File(
+          this.cwd,
+          ".jspec/shard-" + this.shards.index + "-of-" + this.shards.count + ".results");
+    }
   }
 
-  private void discover(File start, String pattern) {
+  // where each spec class's time is kept between runs
+  static Path durationsFile() {
+    return Path.of(System.getProperty("user.dir"), ".jspec", "durations");
+  }
+
+  // what was found in each directory the last time
+  static Path discoveryFile() {
+    return Path.of(System.getProperty("user.dir"), ".jspec", "discovery");
+  }
+
+  // where specs are compiled to, once each time they change
+  static Path classesDir() {
+    return Path.of(System.getProperty("user.dir"), ".jspec", "classes");
+  }
+
+  // compile caches by the directory specs were found in, w/ a "memory:"
+  // prefix for --in-memory ones, kept for any later runs in this JVM, e.g. in
+  // a daemon, so their bytecode & loader are still there
+  private static HashMap<String, CompileCache> caches = new HashMap<String, CompileCache>();
+
+  static synchronized CompileCache cache(Path root, boolean inMemory) {
+    return CLI.caches
+      .computeIfAbsent(
+        (inMemory ? "memory:" : "") + root,
+        key -> inMemory ? CompileCache.inMemory(root) : CompileCache.load(root, CLI.classesDir()))
+      .startRun();
+  }
+
+  // false if none of the specs use the sources changed, so there's nothing
+  // to run
+  private boolean discover(File start, Set<Path> changed) {
+    // only specs that changed, or use something that did, are compiled again
+    CompileCache cache = CLI.cache(this.cwd.toPath(), this.inMemory);
+
     try {
-      // init empty list to hold list of found spec files
-      ArrayList<Path> specFiles = new ArrayList<Path>();
+      // init list to hold found spec files, added to from the crawler's threads
+      List<Path> found = Collections.synchronizedList(new ArrayList<Path>());
+      // unchanged directories are taken from the last crawl w/ the same globs
+      DiscoveryIndex index = DiscoveryIndex.load(
+        CLI.discoveryFile(),
+        String.join(" ", this.patterns));
       // then crawl the file tree & add matching paths to this list
-      new Crawler(start, pattern)
+      new Crawler(start, this.patterns, this.excludes)
+        .defaultExcludes(!this.noDefaultExcludes)
+        .skipped((dir) -> System.err.println(
+          "Skipped " + start.getAbsoluteFile().toPath().relativize(dir) + "/ as build output or vendored code, "
+            + "search it too w/ --no-default-excludes"))
+        .index(index)
         .crawl(
           // match handler
-          // when the crawler finds a file that matches the given pattern, do this
-          (file) -> specFiles.add(file),
+          // when the crawler finds a file that matches the given patterns, do
+          // this, hashing it for the compile cache while the crawl carries on,
+          // unless only a few of them are going to be run
+          (file) -> {
+            found.add(file);
+            if (changed == null) cache.found(file);
+          },
           // error handler
           // each file visited can throw own error, this function is executed
           // each time a file throws an error before continuing to walk the file tree
           (file, exc) -> System.err.println(
             "Exception " + exc + " thrown on file: " + file));
 
+      try {
+        index.save();
+      } catch (IOException exc) {
+        System.err.println("Unable to save the discovery index to " + CLI.discoveryFile() + ": " + exc);
+      }
+
+      // the crawl finds files in no particular order, so they're sorted to
+      // always run in the same order
+      ArrayList<Path> specFiles = new ArrayList<Path>(found);
+      specFiles.sort(null);
+
+      // when sharding, only this shard's classes are compiled & run
+      ArrayList<Path> runFiles = this.shards == null
+        ? specFiles
+        : this.shards.pick(
+          specFiles,
+          path -> this.className(path),
+          Durations.load(CLI.durationsFile()));
+
+      if (runFiles.isEmpty() && !specFiles.isEmpty()) {
+        System.err.println(
+          "Shard " + this.shard + " has no spec classes to run out of " + specFiles.size());
+        return true;
+      }
+
+      // when watching, only specs using what changed are compiled & run
+      if (changed != null && !runFiles.isEmpty()) {
+        runFiles = cache.affected(runFiles, changed);
+
+        if (runFiles.isEmpty()) {
+          this.console.println("No specs use the " + changed.size() + " source(s) changed");
+          return false;
+        }
+      }
+
       // compile the discovered files & add the initialized specs to the runner
       this
-        .compileAndInitFiles(specFiles)
+        .compileAndInitFiles(cache, runFiles)
         .forEach(group -> this.runner.addGroup(group));
     } catch (IOException exc) {
       // The act of crawling a file tree can throw its own IO exception
@@ -119,43 +593,49 @@ public class CLI implements Callable<Integer> {
       System.err.println(exc.getMessage());
       System.err.println("Searched in " + this.cwd);
     }
+
+    return true;
   }
 
-  private ArrayList<Group> compileAndInitFiles(ArrayList<Path> paths) throws DiscoveryError {
-    // set up compiler & java file manager
-    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
-    StandardJavaFileManager fileManager =
-      compiler.getStandardFileManager(null, null, null);
-    // set up source files from Paths
-    ArrayList<File> srcs = new ArrayList<File>();
-    paths.forEach(path -> srcs.add(new File(path.toString())));
+  private ArrayList<Group> compileAndInitFiles(CompileCache cache, ArrayList<Path> paths)
+    throws DiscoveryError
+  {
+    if (paths.isEmpty())
+      throw new DiscoveryError(
+        "No matching files found for pattern:\n   " + String.join("\n   ", this.patterns));
 
-    // compile the file
+    // specs that don't compile are left out, the rest still run
+    ArrayList<Path> compiled = new ArrayList<Path>(paths);
+    ClassLoader loader;
     try {
-      compiler.getTask(
-        null,
-        fileManager,
-        null,
-        null,
-        null,
-        fileManager.getJavaFileObjectsFromFiles(srcs)
-        ).call();
-    } catch (IllegalStateException exc) {
-      throw new DiscoveryError("No matching files found for pattern:\n   " + this.pattern);
+      ArrayList<Path> stale = cache.stale(paths);
+
+      if (!stale.isEmpty()) {
+        ArrayList<Path> failed = cache.compile(stale, System.err::println);
+        cache.save();
+
+        if (!failed.isEmpty()) {
+          System.err.println(failed.size() + " spec file(s) didn't compile & won't be run:");
+          failed.forEach(path -> System.err.println("   " + path));
+          compiled.removeAll(failed);
+        }
+      }
+
+      loader = cache.loader(compiled, CLI.class.getClassLoader());
+    } catch (IOException exc) {
+      throw new DiscoveryError("Unable to load the compiled specs: " + exc);
     }
 
+    // forked workers look for the classes there too
+    if (!this.inMemory) System.setProperty("jspec.class.path", CLI.classesDir().toString());
+
     // build list of Group instances for each src file
     ArrayList<Group> specs = new ArrayList<Group>();
-    paths.forEach(path -> {
-      // get name from file
-      String srcName = path.toString();
-      // get qualified name from Path
-      String clsName = srcName
-        .substring(cwd.getPath().length() + 1, srcName.length() - 5)
-        .replace('/', '.');
+    compiled.forEach(path -> {
+      String clsName = this.className(path);
       try {
         // get the actual class object, then initialize it
-        Class<?> cls = Class.forName(clsName);
+        Class<?> cls = Class.forName(clsName, true, loader);
         Group grp = (Group)cls.getConstructor().newInstance();
         // add instance to list of groups
         specs.add(grp);
@@ -180,10 +660,129 @@ public class CLI implements Callable<Integer> {
     return specs;
   }
 
+  private String className(Path path) {
+    // get name from file
+    String srcName = path.toString();
+    // get qualified name from Path
+    return srcName
+      .substring(cwd.getPath().length() + 1, srcName.length() - 5)
+      .replace('/', '.');
+  }
+
   private void run() {
-    this.runner.run(false);
-    this.runner.resultStrings(this.concise).forEach(
-      (line, i) -> System.out.println(line.getValue()));
+    RunLogWriter log = null;
+    OutputStream logOut = null;
+
+    if (this.logFile != null) {
+      try {
+        Path file = Path.of(this.logFile).toAbsolutePath();
+        Files.createDirectories(file.getParent());
+        logOut = Files.newOutputStream(file);
+        log = new RunLogWriter(logOut);
+        this.runner.addListener(log);
+      } catch (IOException exc) {
+        System.err.println("Unable to write the run log to " + this.logFile + ": " + exc);
+      }
+    }
+
+    this.report();
+
+    if (logOut != null) {
+      try {
+        logOut.close();
+        if (log.getError() != null) throw log.getError();
+      } catch (IOException exc) {
+        System.err.println("Unable to write the run log to " + this.logFile + ": " + exc);
+      }
+    }
+
+    this.save();
+  }
+
+  private void report() {
+    // the report is written to one buffered sink & only flushed at the end
+    try (ReportSink report = ReportSink.open(this.outFile)) {
+      if (!this.reporter.equals("text")) {
+        this.runStreaming(report);
+      } else {
+        this.runner.run(false);
+        // finish the line of progress when the report is going elsewhere
+        if (!report.isStdout()) this.console.println();
+        this.runner.writeResults(report.writer(), this.concise);
+      }
+    } catch (IOException exc) {
+      System.err.println("Unable to write the report to " + this.outFile + ": " + exc);
+    }
+  }
+
+  // runs w/ a reporter that writes each result as it happens
+  private void runStreaming(ReportSink report) {
+    RunListener reporter;
+    Supplier<Exception> error;
+
+    if (this.reporter.equals("junit-xml")) {
+      JUnitXmlReporter xml = new JUnitXmlReporter(report.writer());
+      reporter = xml;
+      error = xml::getError;
+    } else {
+      NdjsonReporter json = new NdjsonReporter(report.writer());
+      reporter = json;
+      error = json::getError;
+    }
+
+    // anything the specs print to stdout would break up the report there, so
+    // it goes to stderr for the run instead
+    PrintStream stdout = System.out;
+    if (report.isStdout()) System.setOut(System.err);
+
+    // when only the report goes to stdout there's no progress to show & no
+    // text report to keep results for, unless they're being saved
+    try {
+      this.runner
+        .addListener(reporter)
+        .keepResults(!report.isStdout() || this.saveFile != null)
+        .run(report.isStdout());
+    } finally {
+      System.setOut(stdout);
+    }
+
+    if (error.get() != null)
+      System.err.println("Unable to write the " + this.reporter + " report: " + error.get().getMessage());
+
+    // otherwise, the console still gets a summary
+    if (!report.isStdout()) {
+      this.runner.resultStrings(true).forEach(
+        (line, i) -> this.console.println(line.getValue()));
+    }
+  }
+
+  private void save() {
+    // nothing was kept to save
+    if (this.runner.getResults() == null) return;
+
+    // keep each class's time so later runs can balance their shards; a shard
+    // leaves them alone, as every shard must split the suite the same way, &
+    // they're updated when the shards' results are merged instead
+    if (this.shards == null) {
+      try {
+        Durations.load(CLI.durationsFile()).record(this.runner.getResults()).save();
+      } catch (IOException exc) {
+        System.err.println("Unable to save test durations: " + exc);
+      }
+    }
+
+    if (this.saveFile == null) return;
+
+    try {
+      Path file = this.saveFile.toPath().toAbsolutePath();
+      Files.createDirectories(file.getParent());
+
+      try (BufferedWriter out = Files.newBufferedWriter(file)) {
+        ResultsArchive.write(this.runner.getResults(), out);
+      }
+    } catch (IOException exc) {
+      System.err.println("Unable to save results to " + this.saveFile + ": " + exc);
+    }
   }
 }
 
@@ -0,0 +1,111 @@
+package jspec.cli;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Just enough of a compiled class to know what it's built on & what it uses:
+// its name, superclass & interfaces, & every other class it refers to, all
+// as binary names, e.g. `jspec.lib.RunnerSpec$Results`. Read from the
+// constant pool, which names each class used & holds the descriptors of the
+// fields & methods used, w/o loading the class.
+class ClassFile {
+  private static final Pattern descriptorType = Pattern.compile("L([^;<>\\[]+)[;<]");
+
+  String name;
+  ArrayList<String> supertypes = new ArrayList<String>();
+  LinkedHashSet<String> references = new LinkedHashSet<String>();
+
+  static ClassFile read(byte[] bytes) {
+    ByteBuffer in = ByteBuffer.wrap(bytes);
+    if (in.getInt() != 0xcafebabe) throw new IllegalArgumentException("Not a class file");
+    // minor & major version
+    in.getInt();
+
+    int count = Short.toUnsignedInt(in.getShort());
+    String[] utf8 = new String[count];
+    int[] classes = new int[count];
+
+    for (int i = 1; i < count; i++) {
+      byte tag = in.get();
+
+      switch (tag) {
+        case 1:
+          byte[] text = new byte[Short.toUnsignedInt(in.getShort())];
+          in.get(text);
+          // modified UTF-8 only differs for nulls & surrogates, neither of
+          // which are in the names looked for
+          utf8[i] = new String(text, StandardCharsets.UTF_8);
+          break;
+        case 7:
+          classes[i] = Short.toUnsignedInt(in.getShort());
+          break;
+        case 5: case 6:
+          // longs & doubles take up two entries
+          in.position(in.position() + 8);
+          ++i;
+          break;
+        case 3: case 4: case 9: case 10: case 11: case 12: case 17: case 18:
+          in.position(in.position() + 4);
+          break;
+        case 15:
+          in.position(in.position() + 3);
+          break;
+        case 8: case 16: case 19: case 20:
+          in.position(in.position() + 2);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown constant pool tag " + tag);
+      }
+    }
+
+    ClassFile file = new ClassFile();
+
+    for (int i = 1; i < count; i++) {
+      if (classes[i] != 0) file.reference(utf8[classes[i]]);
+      else if (utf8[i] != null && utf8[i].indexOf(';') >= 0) file.descriptor(utf8[i]);
+    }
+
+    // access flags
+    in.getShort();
+    file.name = ClassFile.binaryName(utf8[classes[Short.toUnsignedInt(in.getShort())]]);
+    file.references.remove(file.name);
+
+    int superclass = Short.toUnsignedInt(in.getShort());
+    // only Object has none
+    if (superclass != 0) file.supertypes.add(ClassFile.binaryName(utf8[classes[superclass]]));
+
+    int interfaces = Short.toUnsignedInt(in.getShort());
+    for (int i = 0; i < interfaces; i++) {
+      file.supertypes.add(ClassFile.binaryName(utf8[classes[Short.toUnsignedInt(in.getShort())]]));
+    }
+
+    return file;
+  }
+
+  static String packageOf(String className) {
+    int dot = className.lastIndexOf('.');
+
+    return dot < 0 ? "" : className.substring(0, dot);
+  }
+
+  // a class named in a class constant is an internal name, or an array
+  // descriptor for arrays
+  private void reference(String internalName) {
+    if (internalName.startsWith("[")) this.descriptor(internalName);
+    else this.references.add(ClassFile.binaryName(internalName));
+  }
+
+  // every class in a field or method descriptor, or in a generic signature
+  private void descriptor(String descriptor) {
+    Matcher matcher = ClassFile.descriptorType.matcher(descriptor);
+    while (matcher.find()) this.references.add(ClassFile.binaryName(matcher.group(1)));
+  }
+
+  private static String binaryName(String internalName) {
+    return internalName.replace('/', '.');
+  }
+}
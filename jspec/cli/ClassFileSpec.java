@@ -0,0 +1,108 @@
+package jspec.cli;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import jspec.lib.Group;
+import jspec.lib.Runner;
+
+public class ClassFileSpec extends Group {
+  public String desc = "class: cli.ClassFile";
+
+  public static void main(String[] args) {
+    ClassFileSpec spec = new ClassFileSpec();
+    new Runner(spec)
+      .run(false)
+      .resultStrings()
+      .forEach((node, i) -> System.out.println(node.getValue()));
+  }
+
+  static final String source = String.join("\n",
+    "package fixture;",
+    "",
+    "import java.nio.file.Path;",
+    "import java.time.Duration;",
+    "import java.util.ArrayList;",
+    "",
+    "public class Used extends ArrayList<String> implements Runnable, Comparable<Used> {",
+    "  // only in a field's type & a generic signature",
+    "  java.util.Map<String, java.util.UUID>[] maps;",
+    "  long answer = 42L;",
+    "",
+    "  // only in a method's descriptor",
+    "  Duration took(Path path) { return null; }",
+    "",
+    "  public void run() { java.util.Objects.requireNonNull(this); }",
+    "",
+    "  public int compareTo(Used other) { return 0; }",
+    "",
+    "  class Inner {}",
+    "}",
+    "");
+
+  // the classes compiled from the fixture, by name
+  static Map<String, byte[]> compiled() throws IOException {
+    Path root = Files.createTempDirectory("jspec-classfile");
+    Path file = root.resolve("fixture/Used.java");
+
+    try {
+      Files.createDirectories(file.getParent());
+      Files.writeString(file, ClassFileSpec.source);
+
+      CompileCache cache = CompileCache.inMemory(root).startRun();
+      ArrayList<String> errors = new ArrayList<String>();
+      assert cache.compile(List.of(file), errors::add).isEmpty() : "didn't compile: " + errors;
+
+      return cache.classes(List.of(file));
+    } finally {
+      Files.delete(file);
+      Files.delete(file.getParent());
+      Files.delete(root);
+    }
+  }
+
+  public String descNames = "Reads the class's name, superclass & interfaces as binary names";
+  public void testNames() throws IOException {
+    Map<String, byte[]> classes = compiled();
+    ClassFile used = ClassFile.read(classes.get("fixture.Used"));
+    ClassFile inner = ClassFile.read(classes.get("fixture.Used$Inner"));
+
+    assert used.name.equals("fixture.Used") : used.name;
+    assert used.supertypes.equals(List.of("java.util.ArrayList", "java.lang.Runnable", "java.lang.Comparable"))
+      : "supertypes " + used.supertypes;
+    assert inner.name.equals("fixture.Used$Inner") : inner.name;
+  }
+
+  public String descReferences = "Finds the classes used in its code, fields, methods & signatures";
+  public void testReferences() throws IOException {
+    ClassFile used = ClassFile.read(compiled().get("fixture.Used"));
+
+    for (String cls : List.of(
+      "java.util.ArrayList",
+      "java.util.Objects",
+      "java.util.Map",
+      "java.util.UUID",
+      "java.time.Duration",
+      "java.nio.file.Path",
+      "fixture.Used$Inner"
+    )) {
+      assert used.references.contains(cls) : cls + " isn't in " + used.references;
+    }
+
+    assert !used.references.contains("fixture.Used") : "not the class itself";
+  }
+
+  public String descNotAClass = "Won't read anything but a class file";
+  public void testNotAClass() {
+    try {
+      ClassFile.read(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+      assert false : "should have thrown";
+    } catch (IllegalArgumentException exc) {
+      assert exc.getMessage().equals("Not a class file") : exc.getMessage();
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package jspec.cli;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+
+// A thin client for `jspec daemon`, which hands its arguments over to the
+// daemon running in the current directory & prints what the run prints as it
+// comes, exiting w/ the run's exit code. It doesn't load picocli, javac or any
+// specs itself, so it starts in a fraction of the time a whole run would:
+//
+//   java jspec.cli.Client [the usual options & patterns]
+//
+// Both ends talk over a Unix domain socket in .jspec. The client sends the
+// number of arguments & then each of them; the daemon sends back frames of
+// a kind byte followed by either the length & bytes of some output, or the
+// exit code, which is always the last frame.
+public class Client {
+  static final byte exit = 0;
+  static final byte out = 1;
+  static final byte err = 2;
+
+  // where the daemon for the current directory listens
+  static Path socket() {
+    return Path.of(System.getProperty("user.dir"), ".jspec", "daemon.sock");
+  }
+
+  public static void main(String[] args) {
+    System.exit(Client.run(Client.socket(), args, System.out, System.err));
+  }
+
+  static int run(Path socket, String[] args, PrintStream out, PrintStream err) {
+    try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+      try {
+        channel.connect(UnixDomainSocketAddress.of(socket));
+      } catch (IOException exc) {
+        err.println(
+          "No jspec daemon is running in " + System.getProperty("user.dir") +
+          ", start one there w/ `java -ea jspec.cli.CLI daemon`");
+        return 2;
+      }
+
+      DataOutputStream request = new DataOutputStream(Channels.newOutputStream(channel));
+      request.writeInt(args.length);
+      for (String arg : args) request.writeUTF(arg);
+      request.flush();
+
+      DataInputStream response = new DataInputStream(
+        new BufferedInputStream(Channels.newInputStream(channel)));
+
+      while (true) {
+        byte kind = response.readByte();
+        if (kind == Client.exit) return response.readInt();
+
+        byte[] bytes = new byte[response.readInt()];
+        response.readFully(bytes);
+
+        PrintStream stream = kind == Client.err ? err : out;
+        stream.write(bytes, 0, bytes.length);
+        stream.flush();
+      }
+    } catch (EOFException exc) {
+      err.println("The jspec daemon went away before the run was done");
+      return 2;
+    } catch (IOException exc) {
+      err.println("Unable to talk to the jspec daemon: " + exc);
+      return 2;
+    }
+  }
+}
@@ -0,0 +1,633 @@
+package jspec.cli;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+// Spec classes compiled by the CLI, kept between runs in a directory of their
+// own instead of next to the sources. Each source compiled is indexed w/ a
+// hash of its content & of each source its classes use, so it's only handed
+// to the compiler again once one of those has changed, or one of the sources
+// they use in turn, & so on. The index is saved as:
+//
+//   jspec-classes 1 <java version>
+//   S <sha-256> <source>    a source compiled into the cache
+//   C <class name>          each class compiled from it
+//   D <sha-256> <source>    each source its classes use
+//
+// w/ sources relative to the root they were found in. An index from another
+// version of Java is started over.
+//
+// The bytecode is also held by the cache once read or compiled, so a cache
+// kept for later runs in the same JVM, e.g. by a daemon, only compiles what's
+// changed & reuses the same loader, & so the same classes, if nothing has.
+// Otherwise a new loader is made for the run, & the old one & its classes are
+// left to be garbage collected. Classes defined in the parent's packages (see
+// SpecClassLoader) can't be replaced though, so changes to those are only
+// picked up by a new JVM. Kept in memory only, nothing is written to disk at
+// all.
+class CompileCache {
+  static final String header = "jspec-classes 1 " + Runtime.version().feature();
+
+  private Path root;
+  // null when kept in memory only
+  private Path dir;
+  // the bytecode by class name, of every class when kept in memory only,
+  // else as it's read or compiled
+  private HashMap<String, byte[]> memory = new HashMap<String, byte[]>();
+  private SpecClassLoader loader;
+  private Map<String, byte[]> loaded;
+  private HashMap<Path, Entry> entries = new HashMap<Path, Entry>();
+  // the source each class in the cache was compiled from
+  private HashMap<String, Path> sources = new HashMap<String, Path>();
+  // worked out once per run, as sources are found; empty for a source that's
+  // gone
+  private ConcurrentHashMap<Path, String> hashes = new ConcurrentHashMap<Path, String>();
+  private HashMap<Path, Boolean> fresh = new HashMap<Path, Boolean>();
+  // what each source cleared from the index used when it was last compiled
+  private HashMap<Path, Set<Path>> lastUses = new HashMap<Path, Set<Path>>();
+
+  static class Entry {
+    String hash;
+    ArrayList<String> classes = new ArrayList<String>();
+    LinkedHashMap<Path, String> uses = new LinkedHashMap<Path, String>();
+  }
+
+  CompileCache(Path root, Path dir) {
+    this.root = root.toAbsolutePath().normalize();
+    this.dir = dir;
+  }
+
+  static CompileCache inMemory(Path root) {
+    return new CompileCache(root, null);
+  }
+
+  static CompileCache load(Path root, Path dir) {
+    CompileCache cache = new CompileCache(root, dir);
+
+    try (BufferedReader in = Files.newBufferedReader(cache.index())) {
+      if (!CompileCache.header.equals(in.readLine())) return cache;
+
+      Entry entry = null;
+      String line;
+      while ((line = in.readLine()) != null) {
+        if (line.length() < 2) continue;
+        String value = line.substring(2);
+        int space = value.indexOf(' ');
+
+        switch (line.charAt(0)) {
+          case 'S':
+            entry = new Entry();
+            entry.hash = value.substring(0, space);
+            cache.entries.put(Path.of(value.substring(space + 1)), entry);
+            break;
+          case 'C':
+            if (entry != null) entry.classes.add(value);
+            break;
+          case 'D':
+            if (entry != null) entry.uses.put(Path.of(value.substring(space + 1)), value.substring(0, space));
+            break;
+        }
+      }
+    } catch (NoSuchFileException exc) {
+      // nothing compiled yet
+    } catch (IOException | RuntimeException exc) {
+      // anything unreadable is just compiled again
+      System.err.println("Unable to read the compile cache in " + dir + ": " + exc);
+      cache.entries.clear();
+    }
+
+    cache.entries.forEach((source, entry) -> entry.classes.forEach(cls -> cache.sources.put(cls, source)));
+
+    return cache;
+  }
+
+  // forgets what was worked out in the last run in this JVM, as the sources
+  // may have changed since
+  CompileCache startRun() {
+    this.hashes.clear();
+    this.fresh.clear();
+    this.lastUses.clear();
+
+    return this;
+  }
+
+  // hashes a spec & the sources it used last time as soon as it's found, on
+  // the crawler's thread, so they're ready by the time the crawl is done
+  void found(Path spec) {
+    Path source = this.relative(spec);
+    this.hash(source);
+
+    Entry entry = this.entries.get(source);
+    if (entry != null) entry.uses.keySet().forEach(this::hash);
+  }
+
+  // the specs that have to be compiled again, after clearing anything out of
+  // date they use from the cache so the compiler has to compile that too
+  ArrayList<Path> stale(List<Path> specs) {
+    ArrayList<Path> outdated = new ArrayList<Path>();
+    for (Path source : this.involved(specs)) {
+      if (!this.isFresh(source, new HashSet<Path>())) outdated.add(source);
+    }
+
+    for (Path source : outdated) {
+      Entry entry = this.entries.get(source);
+      if (entry == null) continue;
+
+      // kept to batch sources that used each other last time together
+      this.lastUses.put(source, entry.uses.keySet());
+      this.remove(source, true);
+    }
+
+    ArrayList<Path> stale = new ArrayList<Path>();
+    for (Path spec : specs) {
+      if (!this.entries.containsKey(this.relative(spec))) stale.add(spec);
+    }
+
+    return stale;
+  }
+
+  // the specs that are new, or use one of the changed sources, directly or
+  // not, as of when they were last compiled
+  ArrayList<Path> affected(List<Path> specs, Set<Path> changed) {
+    HashSet<Path> sources = new HashSet<Path>();
+    changed.forEach(source -> sources.add(this.relative(source)));
+
+    ArrayList<Path> affected = new ArrayList<Path>();
+    for (Path spec : specs) {
+      boolean hit = !this.entries.containsKey(this.relative(spec));
+
+      for (Path source : this.involved(List.of(spec))) {
+        Entry entry = this.entries.get(source);
+        hit = hit
+          || sources.contains(source)
+          || entry != null && entry.uses.keySet().stream().anyMatch(sources::contains);
+      }
+
+      if (hit) affected.add(spec);
+    }
+
+    return affected;
+  }
+
+  // compiles the sources in batches side by side, so a source that doesn't
+  // compile only holds up its own batch, & returns those that didn't compile
+  // after passing on the compiler's errors; nothing is added to the index
+  // for them
+  ArrayList<Path> compile(List<Path> sources, Consumer<String> errors) throws IOException {
+    ArrayList<List<Path>> batches = this.batches(sources);
+    ArrayList<Batch> compiled = new ArrayList<Batch>();
+    ForkJoinPool pool = new ForkJoinPool(batches.size());
+
+    try {
+      ArrayList<ForkJoinTask<Batch>> tasks = new ArrayList<ForkJoinTask<Batch>>();
+      for (List<Path> batch : batches) tasks.add(pool.submit(() -> this.compileBatch(batch)));
+      for (ForkJoinTask<Batch> task : tasks) compiled.add(task.join());
+    } finally {
+      pool.shutdown();
+    }
+
+    ArrayList<Path> failed = new ArrayList<Path>();
+    LinkedHashMap<Path, Entry> added = new LinkedHashMap<Path, Entry>();
+
+    for (Batch batch : compiled) {
+      batch.errors.forEach(errors);
+      batch.failed.forEach(source -> failed.add(this.root.resolve(source)));
+
+      // a source used by several batches is compiled by each of them
+      batch.sources.forEach((cls, source) -> {
+        if (!added.containsKey(source)) {
+          this.remove(source, false);
+          added.put(source, new Entry());
+        }
+
+        if (!added.get(source).classes.contains(cls)) added.get(source).classes.add(cls);
+        this.sources.put(cls, source);
+      });
+
+      for (Map.Entry<String, byte[]> cls : batch.classes.entrySet()) {
+        this.memory.put(cls.getKey(), cls.getValue());
+        if (this.dir == null) continue;
+
+        Path file = this.classFile(cls.getKey());
+        Files.createDirectories(file.getParent());
+        Files.write(file, cls.getValue());
+      }
+    }
+
+    for (Map.Entry<Path, Entry> source : added.entrySet()) {
+      Entry entry = source.getValue();
+      entry.hash = this.hash(source.getKey());
+
+      for (String cls : entry.classes) {
+        for (String used : ClassFile.read(this.bytes(cls)).references) {
+          Path usedSource = this.sourceOf(used);
+          if (usedSource != null && !usedSource.equals(source.getKey()))
+            entry.uses.put(usedSource, this.hash(usedSource));
+        }
+      }
+
+      this.entries.put(source.getKey(), entry);
+    }
+
+    return failed;
+  }
+
+  // what one javac task compiled, or didn't
+  static class Batch {
+    // the bytecode of each class compiled & the source it's from, whether it
+    // was one of those given or one they use that the compiler found itself
+    LinkedHashMap<String, byte[]> classes = new LinkedHashMap<String, byte[]>();
+    LinkedHashMap<String, Path> sources = new LinkedHashMap<String, Path>();
+    ArrayList<Path> failed = new ArrayList<Path>();
+    ArrayList<String> errors = new ArrayList<String>();
+  }
+
+  // splits the sources into about as many batches as there are processors,
+  // keeping any that used one another, or the same sources compiled into the
+  // cache, together so they're not compiled twice
+  private ArrayList<List<Path>> batches(List<Path> sources) {
+    // each source's group, by the first source found in it
+    HashMap<Path, Path> groups = new HashMap<Path, Path>();
+    for (Path source : sources) {
+      Path spec = this.relative(source);
+      Path group = CompileCache.group(groups, spec);
+
+      for (Path used : this.lastUses.getOrDefault(spec, Set.of())) {
+        if (this.lastUses.containsKey(used) || this.entries.containsKey(used))
+          groups.put(CompileCache.group(groups, used), group);
+      }
+    }
+
+    LinkedHashMap<Path, List<Path>> together = new LinkedHashMap<Path, List<Path>>();
+    for (Path source : sources) {
+      together
+        .computeIfAbsent(CompileCache.group(groups, this.relative(source)), group -> new ArrayList<Path>())
+        .add(source);
+    }
+
+    // biggest groups first, each to the smallest batch so far
+    ArrayList<List<Path>> ordered = new ArrayList<List<Path>>(together.values());
+    ordered.sort((a, b) -> b.size() - a.size());
+
+    int count = Math.min(ordered.size(), Runtime.getRuntime().availableProcessors());
+    ArrayList<List<Path>> batches = new ArrayList<List<Path>>();
+    for (int i = 0; i < count; i++) batches.add(new ArrayList<Path>());
+
+    for (List<Path> group : ordered) {
+      List<Path> smallest = batches.get(0);
+      for (List<Path> batch : batches) if (batch.size() < smallest.size()) smallest = batch;
+      smallest.addAll(group);
+    }
+
+    return batches;
+  }
+
+  private static Path group(HashMap<Path, Path> groups, Path source) {
+    Path group = groups.getOrDefault(source, source);
+    if (group.equals(source)) return source;
+
+    group = CompileCache.group(groups, group);
+    groups.put(source, group);
+
+    return group;
+  }
+
+  // looked up once per JVM; each batch still gets a file manager of its own,
+  // as they're not thread safe, but javac shares its index of the platform's
+  // classes between them
+  private static JavaCompiler compiler;
+
+  private static synchronized JavaCompiler compiler() {
+    if (CompileCache.compiler == null) CompileCache.compiler = ToolProvider.getSystemJavaCompiler();
+
+    return CompileCache.compiler;
+  }
+
+  // compiles one batch, on a thread of its own; if some of the sources given
+  // don't compile, the rest are tried again w/o them
+  private Batch compileBatch(List<Path> sources) throws IOException {
+    Batch batch = new Batch();
+    JavaCompiler compiler = CompileCache.compiler();
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+    StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null);
+
+    ForwardingJavaFileManager<StandardJavaFileManager> capturing =
+      new ForwardingJavaFileManager<StandardJavaFileManager>(fileManager) {
+        @Override
+        public JavaFileObject getJavaFileForOutput(
+          Location location,
+          String className,
+          JavaFileObject.Kind kind,
+          FileObject sibling) throws IOException
+        {
+          if (kind != JavaFileObject.Kind.CLASS || sibling == null)
+            return super.getJavaFileForOutput(location, className, kind, sibling);
+
+          batch.sources.put(className, CompileCache.this.relative(Path.of(sibling.toUri())));
+
+          return new SimpleJavaFileObject(
+            URI.create("memory:///" + className.replace('.', '/') + ".class"),
+            kind)
+          {
+            @Override
+            public OutputStream openOutputStream() {
+              return new ByteArrayOutputStream() {
+                @Override
+                public void close() {
+                  batch.classes.put(className, this.toByteArray());
+                }
+              };
+            }
+          };
+        }
+      };
+
+    // every batch sees the cache as it was before any of them, as the
+    // compiler can't see the classes held in memory; sources used from there
+    // are compiled again from scratch
+    String classPath = this.dir != null
+      ? this.dir + File.pathSeparator + System.getProperty("java.class.path")
+      : System.getProperty("java.class.path");
+
+    boolean compiled;
+    try (fileManager) {
+      compiled = compiler
+        .getTask(
+          null,
+          capturing,
+          diagnostics,
+          List.of("-classpath", classPath),
+          null,
+          fileManager.getJavaFileObjectsFromPaths(sources))
+        .call();
+    }
+
+    if (compiled) return batch;
+
+    // the sources given w/ errors in them
+    LinkedHashSet<Path> broken = new LinkedHashSet<Path>();
+    for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+      if (diagnostic.getKind() != Diagnostic.Kind.ERROR) continue;
+
+      batch.errors.add(CompileCache.format(diagnostic));
+      if (diagnostic.getSource() != null) {
+        Path source = Path.of(diagnostic.getSource().toUri()).toAbsolutePath().normalize();
+        for (Path given : sources) if (given.toAbsolutePath().normalize().equals(source)) broken.add(given);
+      }
+    }
+
+    // an error in something they all use, or one w/o a source, fails them all
+    if (broken.isEmpty() || broken.size() == sources.size()) {
+      sources.forEach(source -> batch.failed.add(this.relative(source)));
+      return batch;
+    }
+
+    ArrayList<Path> rest = new ArrayList<Path>(sources);
+    rest.removeAll(broken);
+
+    Batch retried = this.compileBatch(rest);
+    broken.forEach(source -> retried.failed.add(0, this.relative(source)));
+    retried.errors.addAll(0, batch.errors);
+
+    return retried;
+  }
+
+  // as javac prints it
+  private static String format(Diagnostic<? extends JavaFileObject> diagnostic) {
+    String where = diagnostic.getSource() == null
+      ? ""
+      : diagnostic.getSource().getName() + ":" + diagnostic.getLineNumber() + ": ";
+
+    return where + "error: " + diagnostic.getMessage(null);
+  }
+
+  // the bytecode of the specs' classes & of any classes in the cache they use
+  LinkedHashMap<String, byte[]> classes(List<Path> specs) throws IOException {
+    LinkedHashMap<String, byte[]> classes = new LinkedHashMap<String, byte[]>();
+
+    for (Path source : this.involved(specs)) {
+      Entry entry = this.entries.get(source);
+      if (entry == null) continue;
+
+      for (String cls : entry.classes) classes.put(cls, this.bytes(cls));
+    }
+
+    return classes;
+  }
+
+  // a loader for the specs' classes, the same as last time if none of them
+  // have been compiled since
+  ClassLoader loader(List<Path> specs, ClassLoader parent) throws IOException {
+    LinkedHashMap<String, byte[]> classes = this.classes(specs);
+
+    boolean same = this.loader != null;
+    for (Map.Entry<String, byte[]> cls : classes.entrySet()) {
+      same = same && this.loaded.get(cls.getKey()) == cls.getValue();
+    }
+
+    if (!same) {
+      this.loader = new SpecClassLoader(classes, parent);
+      this.loaded = classes;
+    }
+
+    return this.loader;
+  }
+
+  void save() throws IOException {
+    if (this.dir == null) return;
+
+    Files.createDirectories(this.dir);
+    Path temp = Files.createTempFile(this.dir, "index", ".tmp");
+
+    try (BufferedWriter out = Files.newBufferedWriter(temp)) {
+      out.write(CompileCache.header);
+      out.newLine();
+
+      for (Map.Entry<Path, Entry> source : this.entries.entrySet()) {
+        Entry entry = source.getValue();
+        out.write("S " + entry.hash + " " + source.getKey());
+        out.newLine();
+
+        for (String cls : entry.classes) {
+          out.write("C " + cls);
+          out.newLine();
+        }
+
+        for (Map.Entry<Path, String> used : entry.uses.entrySet()) {
+          out.write("D " + used.getValue() + " " + used.getKey());
+          out.newLine();
+        }
+      }
+    }
+
+    // so another run reading the index never sees half of it
+    Files.move(temp, this.index(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private Path index() {
+    return this.dir.resolve("index");
+  }
+
+  private byte[] bytes(String className) throws IOException {
+    byte[] bytes = this.memory.get(className);
+    if (bytes != null) return bytes;
+    if (this.dir == null) throw new NoSuchFileException(className + ".class");
+
+    bytes = Files.readAllBytes(this.classFile(className));
+    this.memory.put(className, bytes);
+
+    return bytes;
+  }
+
+  private boolean has(String className) {
+    return this.memory.containsKey(className)
+      || this.dir != null && Files.isRegularFile(this.classFile(className));
+  }
+
+  private Path classFile(String className) {
+    return this.dir.resolve(className.replace('.', File.separatorChar) + ".class");
+  }
+
+  private Path relative(Path source) {
+    return this.root.relativize(source.toAbsolutePath().normalize());
+  }
+
+  // the specs & every source in the cache they use, directly or not
+  private LinkedHashSet<Path> involved(List<Path> specs) {
+    LinkedHashSet<Path> involved = new LinkedHashSet<Path>();
+    ArrayDeque<Path> pending = new ArrayDeque<Path>();
+    specs.forEach(spec -> pending.add(this.relative(spec)));
+
+    while (!pending.isEmpty()) {
+      Path source = pending.pop();
+      if (!involved.add(source)) continue;
+
+      Entry entry = this.entries.get(source);
+      if (entry == null) continue;
+
+      for (Path used : entry.uses.keySet()) {
+        if (this.entries.containsKey(used)) pending.add(used);
+      }
+    }
+
+    return involved;
+  }
+
+  private boolean isFresh(Path source, HashSet<Path> checking) {
+    Boolean known = this.fresh.get(source);
+    if (known != null) return known;
+
+    Entry entry = this.entries.get(source);
+    if (entry == null) return false;
+    // a source that ends up using itself is as fresh as the rest of the loop
+    if (!checking.add(source)) return true;
+
+    boolean fresh = entry.hash.equals(this.hash(source));
+
+    for (String cls : entry.classes) {
+      fresh = fresh && this.has(cls);
+    }
+
+    for (Map.Entry<Path, String> used : entry.uses.entrySet()) {
+      if (!fresh) break;
+
+      fresh = used.getValue().equals(this.hash(used.getKey()))
+        && (!this.entries.containsKey(used.getKey()) || this.isFresh(used.getKey(), checking));
+    }
+
+    this.fresh.put(source, fresh);
+
+    return fresh;
+  }
+
+  // takes a source out of the index, deleting its classes too unless they've
+  // just been compiled again
+  private void remove(Path source, boolean deleteClasses) {
+    Entry entry = this.entries.remove(source);
+    if (entry == null) return;
+
+    for (String cls : entry.classes) {
+      if (source.equals(this.sources.get(cls))) this.sources.remove(cls);
+
+      if (!deleteClasses) continue;
+
+      this.memory.remove(cls);
+      if (this.dir != null) {
+        try {
+          Files.deleteIfExists(this.classFile(cls));
+        } catch (IOException exc) {
+          // overwritten when compiled again anyway
+        }
+      }
+    }
+  }
+
+  // the source a class is compiled from: the one it was compiled from into
+  // the cache, or else the one named after it, if there is one
+  private Path sourceOf(String className) {
+    Path source = this.sources.get(className);
+    if (source != null) return source;
+
+    if (className.startsWith("java.") || className.startsWith("javax.") || className.startsWith("jdk."))
+      return null;
+
+    int nested = className.indexOf('$');
+    String outer = nested < 0 ? className : className.substring(0, nested);
+    Path file = Path.of(outer.replace('.', File.separatorChar) + ".java");
+
+    return Files.isRegularFile(this.root.resolve(file)) ? file : null;
+  }
+
+  private String hash(Path source) {
+    String hash = this.hashes.get(source);
+    if (hash != null) return hash;
+
+    try {
+      hash = HexFormat.of().formatHex(
+        MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(this.root.resolve(source))));
+    } catch (IOException exc) {
+      hash = "";
+    } catch (NoSuchAlgorithmException exc) {
+      // every Java platform has to have SHA-256
+      throw new IllegalStateException(exc);
+    }
+
+    this.hashes.put(source, hash);
+
+    return hash;
+  }
+}
@@ -0,0 +1,180 @@
+package jspec.cli;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import jspec.lib.Group;
+import jspec.lib.Runner;
+
+public class CompileCacheSpec extends Group {
+  public String desc = "class: cli.CompileCache";
+
+  public static void main(String[] args) {
+    CompileCacheSpec spec = new CompileCacheSpec();
+    new Runner(spec)
+      .run(false)
+      .resultStrings()
+      .forEach((node, i) -> System.out.println(node.getValue()));
+  }
+
+  // compiles the sources, failing the test on any error
+  static void compile(CompileCache cache, List<Path> sources) throws IOException {
+    ArrayList<String> errors = new ArrayList<String>();
+    List<Path> failed = cache.compile(sources, errors::add);
+
+    assert failed.isEmpty() : "didn't compile: " + errors;
+  }
+
+  public String descFresh = "Compiles each spec once, until something changes";
+  public void testFresh() throws IOException {
+    try (SourceTree fixture = new SourceTree()) {
+      List<Path> specs = fixture.specs();
+      CompileCache cache = CompileCache.inMemory(fixture.root).startRun();
+
+      assert cache.stale(specs).equals(specs) : "nothing's been compiled yet";
+      compile(cache, specs);
+
+      List<Path> stale = cache.startRun().stale(specs);
+      assert stale.isEmpty() : "stale: " + stale;
+    }
+  }
+
+  public String descEditedDependency = "Editing a source a spec uses makes that spec stale, & only that spec";
+  public void testEditedDependency() throws IOException {
+    try (SourceTree fixture = new SourceTree()) {
+      List<Path> specs = fixture.specs();
+      CompileCache cache = CompileCache.inMemory(fixture.root).startRun();
+      compile(cache, cache.stale(specs));
+
+      fixture.write("Dep", "public class Dep { public static int value() { return 2; } }");
+
+      List<Path> stale = cache.startRun().stale(specs);
+      assert stale.equals(List.of(fixture.source("UsesDep"))) : "stale: " + stale;
+    }
+  }
+
+  public String descEditedDeeper = "Editing a source used by one a spec uses makes that spec stale too";
+  public void testEditedDeeper() throws IOException {
+    try (SourceTree fixture = new SourceTree()) {
+      fixture.write("Dep", "public class Dep { public static int value() { return Deeper.value(); } }");
+      fixture.write("Deeper", "class Deeper { static int value() { return 1; } }");
+      List<Path> specs = fixture.specs();
+      CompileCache cache = CompileCache.inMemory(fixture.root).startRun();
+      compile(cache, cache.stale(specs));
+
+      fixture.write("Deeper", "class Deeper { static int value() { return 2; } }");
+
+      List<Path> stale = cache.startRun().stale(specs);
+      assert stale.equals(List.of(fixture.source("UsesDep"))) : "stale: " + stale;
+    }
+  }
+
+  public String descEditedSpec = "Editing a spec makes only that spec stale";
+  public void testEditedSpec() throws IOException {
+    try (SourceTree fixture = new SourceTree()) {
+      List<Path> specs = fixture.specs();
+      CompileCache cache = CompileCache.inMemory(fixture.root).startRun();
+      compile(cache, cache.stale(specs));
+
+      fixture.write("Alone", "public class Alone { int changed; }");
+
+      List<Path> stale = cache.startRun().stale(specs);
+      assert stale.equals(List.of(fixture.source("Alone"))) : "stale: " + stale;
+    }
+  }
+
+  public String descBrokenInBatch = "A spec that doesn't compile doesn't fail the others compiled w/ it";
+  public void testBrokenInBatch() throws IOException {
+    try (SourceTree fixture = new SourceTree()) {
+      // more than twice as many as there are batches, so each batch has
+      // others in it w/ the broken one
+      ArrayList<Path> specs = new ArrayList<Path>();
+      for (int i = 0; i < 2 * Runtime.getRuntime().availableProcessors() + 1; i++)
+        specs.add(fixture.write("Fine" + i, "public class Fine" + i + " { int value = Dep.value(); }"));
+      Path broken = fixture.write("Broken", "public class Broken { int value = Dep.missing(); }");
+      specs.add(broken);
+
+      CompileCache cache = CompileCache.inMemory(fixture.root).startRun();
+      ArrayList<String> errors = new ArrayList<String>();
+      List<Path> failed = cache.compile(specs, errors::add);
+
+      assert failed.equals(List.of(broken)) : "failed: " + failed;
+      assert errors.size() == 1 && errors.get(0).contains("Broken.java") : "errors: " + errors;
+
+      specs.remove(broken);
+      List<Path> stale = cache.startRun().stale(specs);
+      assert stale.isEmpty() : "stale: " + stale;
+    }
+  }
+
+  public String descAffected = "Picks the specs to run again for the sources changed while watching";
+  public void testAffected() throws IOException {
+    try (SourceTree fixture = new SourceTree()) {
+      fixture.write("Dep", "public class Dep { public static int value() { return Deeper.value(); } }");
+      fixture.write("Deeper", "class Deeper { static int value() { return 1; } }");
+      List<Path> specs = fixture.specs();
+      CompileCache cache = CompileCache.inMemory(fixture.root).startRun();
+      compile(cache, cache.stale(specs));
+
+      Path usesDep = fixture.source("UsesDep");
+      Path alone = fixture.source("Alone");
+
+      assert cache.affected(specs, Set.of()).isEmpty() : "nothing changed";
+      assert cache.affected(specs, Set.of(alone)).equals(List.of(alone)) : "a spec itself";
+      assert cache.affected(specs, Set.of(fixture.source("Dep"))).equals(List.of(usesDep))
+        : "a source a spec uses";
+      assert cache.affected(specs, Set.of(fixture.source("Deeper"))).equals(List.of(usesDep))
+        : "a source used by one a spec uses";
+      assert cache.affected(specs, Set.of(fixture.root.resolve("README.md"))).isEmpty()
+        : "a file nothing uses";
+
+      Path added = fixture.write("Added", "public class Added {}");
+      assert cache.affected(List.of(usesDep, alone, added), Set.of()).equals(List.of(added))
+        : "a spec that's never been compiled";
+    }
+  }
+}
+
+// A package of sources of its own under the current directory, where the
+// compiler looks for the sources a spec uses, the same as for a run. Named so
+// as not to be taken for specs while it's there.
+class SourceTree implements AutoCloseable {
+  Path root = Path.of(System.getProperty("user.dir"));
+  Path dir;
+  String pkg;
+
+  SourceTree() throws IOException {
+    this.dir = Files.createTempDirectory(this.root.resolve("jspec/cli"), "fixture");
+    this.pkg = "jspec.cli." + this.dir.getFileName();
+
+    this.write("UsesDep", "public class UsesDep { int value = Dep.value(); }");
+    this.write("Dep", "public class Dep { public static int value() { return 1; } }");
+    this.write("Alone", "public class Alone {}");
+  }
+
+  // the ones compiled as specs, the rest only as they're used
+  List<Path> specs() {
+    return List.of(this.source("UsesDep"), this.source("Alone"));
+  }
+
+  Path source(String className) {
+    return this.dir.resolve(className + ".java");
+  }
+
+  Path write(String className, String body) throws IOException {
+    return Files.writeString(this.source(className), "package " + this.pkg + ";\n\n" + body + "\n");
+  }
+
+  @Override
+  public void close() throws IOException {
+    try (Stream<Path> paths = Files.walk(this.dir)) {
+      for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) Files.delete(path);
+    }
+  }
+}
@@ -1,50 +1,263 @@
 package jspec.cli;
 
-import java.lang.Override;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
-import java.nio.file.FileVisitResult;
 import java.nio.file.FileSystems;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+// Finds the files under a directory that match any of a list of globs, e.g.
+// `**/*Spec.java`, & none of another, e.g. `**/vendor/**`, both relative to
+// that directory. Each directory is listed by its own task on a fork-join
+// pool, so big trees are walked in parallel, & each file found is handed over
+// straight away, from whichever thread found it, instead of once the whole
+// tree has been walked. Given a DiscoveryIndex, a directory that hasn't
+// changed since the last crawl isn't listed again.
+//
+// Whole directories are skipped w/o being listed if they're excluded, by
+// name for the usual version control, tool & dependency directories, & for
+// build output & vendored code at the top of the tree, by the exclude globs
+// (`**/vendor/**` skips every `vendor` directory), or by the rules of any
+// .gitignore or .jspecignore files on the way down.
+public class Crawler {
+  // skipped wherever they are
+  static final Set<String> defaultExcludes = Set.of(
+    ".git", ".hg", ".svn", ".jspec", ".gradle", ".idea", "node_modules");
+  // only skipped right under the top of the tree, as deeper down they may
+  // just as well be packages w/ specs in them
+  static final Set<String> rootExcludes = Set.of("target", "build", "vendor");
 
-public class Crawler extends SimpleFileVisitor<Path> {
   private File start;
-  private PathMatcher pattern;
+  private ArrayList<PathMatcher> includes = new ArrayList<PathMatcher>();
+  private ArrayList<PathMatcher> excludes = new ArrayList<PathMatcher>();
+  private ArrayList<PathMatcher> excludedDirectories = new ArrayList<PathMatcher>();
+  private boolean useDefaultExcludes = true;
+  private int parallelism = Runtime.getRuntime().availableProcessors();
+  private DiscoveryIndex index;
   private CrawlHandler handler;
   private CrawlExcHandler excHandler;
+  private CrawlHandler skipHandler;
 
   public Crawler(File start, String pattern) {
+    this(start, List.of(pattern), List.of());
+  }
+
+  public Crawler(File start, List<String> includes, List<String> excludes) {
     this.start = start;
-    String glob = "glob:" + start.getAbsolutePath() + "/" + pattern;
-    this.pattern = FileSystems.getDefault().getPathMatcher(glob);
+    includes.forEach(glob -> this.includes.add(this.matcher(glob)));
+
+    for (String glob : excludes) {
+      this.excludes.add(this.matcher(glob));
+      this.excludedDirectories.add(this.matcher(glob));
+      // everything in a directory means the directory itself, too
+      if (glob.endsWith("/**"))
+        this.excludedDirectories.add(this.matcher(glob.substring(0, glob.length() - 3)));
+    }
+  }
+
+  private PathMatcher matcher(String pattern) {
+    String glob = "glob:" + this.start.getAbsolutePath() + "/" + pattern;
+
+    return FileSystems.getDefault().getPathMatcher(glob);
+  }
+
+  // how many directories to list at once
+  public Crawler parallel(int parallelism) {
+    this.parallelism = parallelism;
+
+    return this;
+  }
+
+  // whether to skip .git, node_modules & the like
+  public Crawler defaultExcludes(boolean useDefaultExcludes) {
+    this.useDefaultExcludes = useDefaultExcludes;
+
+    return this;
   }
 
+  // told about each directory skipped as build output or vendored code, as
+  // it might be expected to be searched
+  public Crawler skipped(CrawlHandler skipHandler) {
+    this.skipHandler = skipHandler;
+
+    return this;
+  }
+
+  // whether a directory under the given root is skipped by default
+  static boolean excludedByDefault(Path root, Path dir) {
+    String name = dir.getFileName().toString();
+
+    return Crawler.defaultExcludes.contains(name)
+      || Crawler.rootExcludes.contains(name) && root.equals(dir.getParent());
+  }
+
+  Crawler index(DiscoveryIndex index) {
+    this.index = index;
+
+    return this;
+  }
+
+  // both handlers may be called from several threads at once
   public Crawler crawl (
     CrawlHandler handler,
     CrawlExcHandler excHandler
   ) throws IOException {
     this.handler = handler;
     this.excHandler = excHandler;
-    Files.walkFileTree(this.start.toPath(), this);
+
+    ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+
+    try {
+      pool.invoke(new Visit(this.start.getAbsoluteFile().toPath(), List.of()));
+    } finally {
+      pool.shutdown();
+    }
 
     return this;
   }
 
-  @Override
-  public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
-    if (this.pattern.matches(file)) {
-      this.handler.handle(file);
+  private boolean included(Path file) {
+    for (PathMatcher include : this.includes) {
+      if (include.matches(file)) return true;
     }
-    return FileVisitResult.CONTINUE;
+
+    return false;
   }
 
-  @Override
-  public FileVisitResult visitFileFailed(Path file, IOException exc) {
-    this.excHandler.handle(file, exc);
-    return FileVisitResult.CONTINUE;
+  private boolean excluded(Path path, boolean directory, List<IgnoreRules> rules) {
+    if (directory
+      && this.useDefaultExcludes
+      && Crawler.excludedByDefault(this.start.getAbsoluteFile().toPath(), path)) {
+      if (this.skipHandler != null && !Crawler.defaultExcludes.contains(path.getFileName().toString()))
+        this.skipHandler.handle(path);
+
+      return true;
+    }
+
+    for (PathMatcher exclude : directory ? this.excludedDirectories : this.excludes) {
+      if (exclude.matches(path)) return true;
+    }
+
+    return IgnoreRules.ignored(rules, path, directory);
+  }
+
+  // the wall clock time, comparable w/ modification times
+  private static long now() {
+    Instant now = Instant.now();
+
+    return now.getEpochSecond() * 1_000_000_000L + now.getNano();
+  }
+
+  // lists one directory, handling its files & visiting its subdirectories
+  // side by side; links aren't followed, same as Files.walkFileTree
+  private class Visit extends RecursiveAction {
+    private Path dir;
+    // the ignore rules of the directories above
+    private List<IgnoreRules> rules;
+
+    Visit(Path dir, List<IgnoreRules> rules) {
+      this.dir = dir;
+      this.rules = rules;
+    }
+
+    @Override
+    protected void compute() {
+      DiscoveryIndex.Listing listing = this.listing();
+      if (listing == null) return;
+
+      // a directory's own ignore files apply to what's in it too
+      List<IgnoreRules> rules = this.rules;
+      for (String name : IgnoreRules.files) {
+        if (!listing.ignoreFiles.contains(name)) continue;
+
+        try {
+          if (rules == this.rules) rules = new ArrayList<IgnoreRules>(this.rules);
+          rules.add(IgnoreRules.read(this.dir.resolve(name)));
+        } catch (IOException exc) {
+          Crawler.this.excHandler.handle(this.dir.resolve(name), exc);
+        }
+      }
+
+      for (String name : listing.files) {
+        Path file = this.dir.resolve(name);
+        if (!Crawler.this.excluded(file, false, rules)) Crawler.this.handler.handle(file);
+      }
+
+      ArrayList<Visit> subdirectories = new ArrayList<Visit>();
+      for (String name : listing.directories) {
+        Path subdirectory = this.dir.resolve(name);
+        if (!Crawler.this.excluded(subdirectory, true, rules))
+          subdirectories.add(new Visit(subdirectory, rules));
+      }
+
+      RecursiveAction.invokeAll(subdirectories);
+    }
+
+    // the files matching the include globs, subdirectories & ignore files in
+    // the directory, from the index if it hasn't changed since the last crawl;
+    // null if it can't be listed
+    private DiscoveryIndex.Listing listing() {
+      DiscoveryIndex index = Crawler.this.index;
+      String name = null;
+      long listedAt = 0;
+      long mtime = -1;
+
+      if (index != null) {
+        name = Crawler.this.start.getAbsoluteFile().toPath().relativize(this.dir).toString();
+        listedAt = Crawler.now();
+
+        try {
+          mtime = Files
+            .getLastModifiedTime(this.dir, LinkOption.NOFOLLOW_LINKS)
+            .to(TimeUnit.NANOSECONDS);
+          DiscoveryIndex.Listing listing = index.unchanged(name, mtime);
+
+          if (listing != null) {
+            index.record(name, listing, listedAt);
+
+            return listing;
+          }
+        } catch (IOException exc) {
+          // listed as if there were no index
+          index = null;
+        }
+      }
+
+      DiscoveryIndex.Listing listing = new DiscoveryIndex.Listing(mtime);
+
+      try (DirectoryStream<Path> entries = Files.newDirectoryStream(this.dir)) {
+        for (Path entry : entries) {
+          String entryName = entry.getFileName().toString();
+
+          if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS))
+            listing.directories.add(entryName);
+          else if (IgnoreRules.files.contains(entryName))
+            listing.ignoreFiles.add(entryName);
+          else if (Crawler.this.included(entry))
+            listing.files.add(entryName);
+        }
+      } catch (IOException exc) {
+        Crawler.this.excHandler.handle(this.dir, exc);
+        return null;
+      } catch (DirectoryIteratorException exc) {
+        Crawler.this.excHandler.handle(this.dir, exc.getCause());
+        return null;
+      }
+
+      if (index != null) index.record(name, listing, listedAt);
+
+      return listing;
+    }
   }
 }
@@ -0,0 +1,95 @@
+package jspec.cli;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import jspec.lib.Group;
+import jspec.lib.Runner;
+
+public class CrawlerSpec extends Group {
+  public String desc = "class: cli.Crawler";
+
+  public static void main(String[] args) {
+    CrawlerSpec spec = new CrawlerSpec();
+    new Runner(spec)
+      .run(false)
+      .resultStrings()
+      .forEach((node, i) -> System.out.println(node.getValue()));
+  }
+
+  // what was found & skipped crawling a tree w/ specs in & under the
+  // directories skipped by default
+  static class Crawled {
+    List<String> found = Collections.synchronizedList(new ArrayList<String>());
+    List<String> skipped = Collections.synchronizedList(new ArrayList<String>());
+  }
+
+  static Crawled crawl(boolean defaultExcludes) throws IOException {
+    Path root = Files.createTempDirectory("jspec-crawl");
+    Crawled crawled = new Crawled();
+
+    try {
+      for (String file : List.of(
+        "ASpec.java",
+        "build/BuiltSpec.java",
+        "vendor/lib/VendoredSpec.java",
+        "src/build/BuildSpec.java",
+        "src/vendor/VendorSpec.java",
+        "src/node_modules/ModuleSpec.java",
+        ".git/GitSpec.java"
+      )) {
+        Path path = root.resolve(file);
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, "");
+      }
+
+      new Crawler(root.toFile(), List.of("**/*Spec.java", "*Spec.java"), List.of())
+        .defaultExcludes(defaultExcludes)
+        .skipped(dir -> crawled.skipped.add(root.relativize(dir).toString()))
+        .crawl(
+          file -> crawled.found.add(root.relativize(file).toString()),
+          (file, exc) -> crawled.found.add(file + ": " + exc));
+    } finally {
+      try (Stream<Path> paths = Files.walk(root)) {
+        for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) Files.delete(path);
+      }
+    }
+
+    Collections.sort(crawled.found);
+    Collections.sort(crawled.skipped);
+
+    return crawled;
+  }
+
+  public String descTopOnly = "Skips build output & vendored code only at the top of the tree";
+  public void testTopOnly() throws IOException {
+    Crawled crawled = CrawlerSpec.crawl(true);
+
+    assert crawled.found.equals(List.of(
+      "ASpec.java",
+      "src/build/BuildSpec.java",
+      "src/vendor/VendorSpec.java"
+    )) : "found " + crawled.found;
+  }
+
+  public String descSkipped = "Tells of each directory skipped as build output or vendored code";
+  public void testSkipped() throws IOException {
+    Crawled crawled = CrawlerSpec.crawl(true);
+
+    assert crawled.skipped.equals(List.of("build", "vendor")) : "skipped " + crawled.skipped;
+  }
+
+  public String descNoDefaults = "Searches everything w/o the default excludes";
+  public void testNoDefaults() throws IOException {
+    Crawled crawled = CrawlerSpec.crawl(false);
+
+    assert crawled.found.size() == 7 : "found " + crawled.found;
+    assert crawled.skipped.isEmpty() : "skipped " + crawled.skipped;
+  }
+}
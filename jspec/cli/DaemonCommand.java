@@ -0,0 +1,145 @@
+package jspec.cli;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+import jspec.vendor.picocli.CommandLine;
+import jspec.vendor.picocli.CommandLine.Command;
+
+@Command(
+  name = "daemon",
+  mixinStandardHelpOptions = true,
+  description = "Keeps a JVM running in the current directory for `java jspec.cli.Client` to run the specs in, w/ the compiler, compiled specs, their loader & test plans all kept warm between runs, so only what's changed is compiled & loaded again. Runs one at a time, in the order asked for, until stopped."
+)
+class DaemonCommand implements Callable<Integer> {
+  @Override
+  public Integer call() {
+    Path socket = Client.socket();
+
+    try {
+      if (Files.exists(socket)) {
+        // left behind by a daemon that didn't get to clean up, unless it's
+        // still there
+        try {
+          SocketChannel.open(UnixDomainSocketAddress.of(socket)).close();
+          System.err.println("A jspec daemon is already running in " + socket.getParent().getParent());
+          return 2;
+        } catch (IOException exc) {
+          Files.delete(socket);
+        }
+      }
+
+      Files.createDirectories(socket.getParent());
+    } catch (IOException exc) {
+      System.err.println("Unable to listen on " + socket + ": " + exc);
+      return 2;
+    }
+
+    try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+      server.bind(UnixDomainSocketAddress.of(socket));
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+        try {
+          Files.deleteIfExists(socket);
+        } catch (IOException exc) {
+          // cleared by the next daemon anyway
+        }
+      }));
+
+      CLI.daemon = true;
+      System.out.println("Listening on " + socket);
+
+      while (true) {
+        try (SocketChannel client = server.accept()) {
+          DaemonCommand.serve(client, args -> new CommandLine(new CLI()).execute(args));
+        } catch (IOException exc) {
+          // only that client's gone
+          System.err.println("Lost a client: " + exc);
+        }
+      }
+    } catch (IOException exc) {
+      System.err.println("Unable to listen on " + socket + ": " + exc);
+      return 2;
+    }
+  }
+
+  // runs the client's arguments as if given to jspec itself, sending what's
+  // printed meanwhile back instead
+  static void serve(SocketChannel client, Function<String[], Integer> command) throws IOException {
+    DataInputStream request = new DataInputStream(
+      new BufferedInputStream(Channels.newInputStream(client)));
+    String[] args = new String[request.readInt()];
+    for (int i = 0; i < args.length; i++) args[i] = request.readUTF();
+
+    DataOutputStream response = new DataOutputStream(Channels.newOutputStream(client));
+    PrintStream out = new PrintStream(new Frames(response, Client.out), true, StandardCharsets.UTF_8);
+    PrintStream err = new PrintStream(new Frames(response, Client.err), true, StandardCharsets.UTF_8);
+
+    int exitCode;
+    PrintStream stdout = System.out;
+    PrintStream stderr = System.err;
+    System.setOut(out);
+    System.setErr(err);
+
+    try {
+      if (args.length > 0 && args[0].equals("daemon")) {
+        System.err.println("A daemon can't be started from another");
+        exitCode = 2;
+      } else {
+        exitCode = command.apply(args);
+      }
+    } finally {
+      out.flush();
+      err.flush();
+      System.setOut(stdout);
+      System.setErr(stderr);
+    }
+
+    synchronized (response) {
+      response.writeByte(Client.exit);
+      response.writeInt(exitCode);
+      response.flush();
+    }
+  }
+
+  // each write to it sent as a frame of its own, as soon as it's written
+  private static class Frames extends OutputStream {
+    private DataOutputStream response;
+    private byte kind;
+
+    Frames(DataOutputStream response, byte kind) {
+      this.response = response;
+      this.kind = kind;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      this.write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+      if (length == 0) return;
+
+      // stdout & stderr may be written from several threads at once
+      synchronized (this.response) {
+        this.response.writeByte(this.kind);
+        this.response.writeInt(length);
+        this.response.write(bytes, offset, length);
+        this.response.flush();
+      }
+    }
+  }
+}
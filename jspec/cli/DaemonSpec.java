@@ -0,0 +1,155 @@
+package jspec.cli;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import jspec.lib.Group;
+import jspec.lib.Runner;
+
+public class DaemonSpec extends Group {
+  public String desc = "class: cli.DaemonCommand & cli.Client";
+
+  public static void main(String[] args) {
+    DaemonSpec spec = new DaemonSpec();
+    new Runner(spec)
+      .run(false)
+      .resultStrings()
+      .forEach((node, i) -> System.out.println(node.getValue()));
+  }
+
+  // what a client got back from one run served by the daemon
+  static class Served {
+    int exitCode;
+    String out;
+    String err;
+  }
+
+  // serves one client on a socket of its own, running the given command; one
+  // at a time, as each swaps System.out & System.err while it runs, the same
+  // as the daemon does
+  static synchronized Served serve(String[] args, Function<String[], Integer> command) throws Exception {
+    Path dir = Files.createTempDirectory("jspec-daemon");
+    Path socket = dir.resolve("daemon.sock");
+
+    try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+      server.bind(UnixDomainSocketAddress.of(socket));
+
+      Thread daemon = new Thread(() -> {
+        try (SocketChannel client = server.accept()) {
+          DaemonCommand.serve(client, command);
+        } catch (IOException exc) {
+          // the client sees the connection drop
+        }
+      });
+      daemon.start();
+
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      ByteArrayOutputStream err = new ByteArrayOutputStream();
+      Served served = new Served();
+      served.exitCode = Client.run(
+        socket,
+        args,
+        new PrintStream(out, true, StandardCharsets.UTF_8),
+        new PrintStream(err, true, StandardCharsets.UTF_8));
+      daemon.join();
+
+      served.out = out.toString(StandardCharsets.UTF_8);
+      served.err = err.toString(StandardCharsets.UTF_8);
+
+      return served;
+    } finally {
+      Files.deleteIfExists(socket);
+      Files.delete(dir);
+    }
+  }
+
+  public String descArgs = "The client's arguments are handed to the command as given";
+  public void testArgs() throws Exception {
+    List<String> received = new ArrayList<String>();
+    Served served = serve(new String[] { "-c", "jspec/lib/*Spec.java", "" }, args -> {
+      received.addAll(List.of(args));
+      return 0;
+    });
+
+    assert served.exitCode == 0;
+    assert received.equals(List.of("-c", "jspec/lib/*Spec.java", ""))
+      : "got " + received;
+  }
+
+  public String descReport = "The report written to stdout reaches the client, not the daemon's own stdout";
+  public void testReport() throws Exception {
+    Served served = serve(new String[0], args -> {
+      System.out.print("...");
+
+      try (ReportSink report = ReportSink.open(null)) {
+        report.writer().write("3/3 tests passed!\n");
+      } catch (IOException exc) {
+        return 2;
+      }
+
+      return 1;
+    });
+
+    assert served.exitCode == 1 : "the command's exit code is the client's";
+    // other tests' progress may end up in it too when run side by side
+    assert served.out.indexOf("...") >= 0
+      && served.out.indexOf("...") < served.out.indexOf("3/3 tests passed!\n")
+      : "got " + served.out;
+  }
+
+  public String descStderr = "Anything printed to stderr is kept apart from stdout";
+  public void testStderr() throws Exception {
+    Served served = serve(new String[0], args -> {
+      System.out.println("out");
+      System.err.println("err");
+
+      return 0;
+    });
+
+    assert served.out.contains("out\n") && !served.out.contains("err") : "got " + served.out;
+    assert served.err.equals("err\n") : "got " + served.err;
+  }
+
+  public String descRestores = "The daemon's own stdout & stderr are put back after each run";
+  public void testRestores() throws Exception {
+    synchronized (DaemonSpec.class) {
+      PrintStream out = System.out;
+      PrintStream err = System.err;
+
+      serve(new String[0], args -> 0);
+
+      assert System.out == out;
+      assert System.err == err;
+    }
+  }
+
+  public String descNoDaemon = "The client says so when there's no daemon to talk to";
+  public void testNoDaemon() throws IOException {
+    Path dir = Files.createTempDirectory("jspec-daemon");
+    ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    try {
+      int exitCode = Client.run(
+        dir.resolve("daemon.sock"),
+        new String[0],
+        new PrintStream(new ByteArrayOutputStream()),
+        new PrintStream(err, true, StandardCharsets.UTF_8));
+
+      assert exitCode == 2;
+      assert err.toString(StandardCharsets.UTF_8).contains("No jspec daemon is running");
+    } finally {
+      Files.delete(dir);
+    }
+  }
+}
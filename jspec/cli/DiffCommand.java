@@ -0,0 +1,75 @@
+package jspec.cli;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import jspec.vendor.picocli.CommandLine.Command;
+import jspec.vendor.picocli.CommandLine.Option;
+import jspec.vendor.picocli.CommandLine.Parameters;
+
+import jspec.lib.RunDiff;
+
+@Command(
+  name = "diff",
+  mixinStandardHelpOptions = true,
+  description = "Compares two runs from the logs saved with `--log`, listing the tests newly failing, newly passing & slower than before. Exits with 1 if any test is newly failing."
+)
+class DiffCommand implements Callable<Integer> {
+  @Option(
+    names = {"--slower"},
+    defaultValue = "20",
+    paramLabel = "PERCENT",
+    description = "List the tests that took more than PERCENT longer than before. Defaults to ${DEFAULT-VALUE}."
+  )
+  double percent = 20;
+
+  @Option(
+    names = {"--min-time"},
+    defaultValue = "1",
+    paramLabel = "MS",
+    description = "Ignore tests that took less than MS milliseconds in both runs when looking for slower ones, as too quick to measure. Defaults to ${DEFAULT-VALUE}."
+  )
+  double minMillis = 1;
+
+  @Option(
+    names = {"-o", "--out", "--outfile"},
+    description = "A file to save the report to instead of printing it to stdout."
+  )
+  File outFile;
+
+  @Parameters(index = "0", paramLabel = "BEFORE", description = "The earlier run's log.")
+  File before;
+
+  @Parameters(index = "1", paramLabel = "AFTER", description = "The later run's log.")
+  File after;
+
+  @Override
+  public Integer call() {
+    if (this.percent < 0 || this.minMillis < 0) {
+      System.err.println(new InvalidArgumentError(
+        this.percent < 0 ? "--slower" : "--min-time",
+        Double.toString(this.percent < 0 ? this.percent : this.minMillis),
+        "Must not be negative").getMessage());
+      return 2;
+    }
+
+    RunDiff diff;
+    try {
+      diff = RunDiff.of(this.before.toPath(), this.after.toPath());
+    } catch (IOException exc) {
+      System.err.println("Unable to read run logs: " + exc.getMessage());
+      return 2;
+    }
+
+    try (ReportSink report = ReportSink.open(this.outFile)) {
+      for (String line : diff.strings(this.percent, (long) (this.minMillis * 1_000_000), "  ")) {
+        report.writer().write(line + "\n");
+      }
+    } catch (IOException exc) {
+      System.err.println("Unable to write the report to " + this.outFile + ": " + exc);
+      return 2;
+    }
+
+    return diff.newlyFailing().isEmpty() ? 0 : 1;
+  }
+}
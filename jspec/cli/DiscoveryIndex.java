@@ -0,0 +1,154 @@
+package jspec.cli;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+// What the Crawler found in each directory the last time, w/ the directory's
+// modification time then, so a directory that hasn't changed since needn't be
+// listed again. Adding, deleting or renaming anything in a directory changes
+// its time, so its files & subdirectories as listed are still all there is;
+// only the subdirectories themselves need checking in turn. Saved as:
+//
+//   jspec-discovery 1
+//   K <the globs searched for>
+//   D <mtime in ns> <directory>     relative to where the crawl started
+//   F <name>                        each file in it matching the globs
+//   S <name>                        each subdirectory
+//   I <name>                        each ignore file
+//
+// Directories & files are kept whether excluded or not, so changing what's
+// excluded doesn't call for listing anything again. An index made w/ other
+// globs to include isn't used. A directory changed too close to when it was
+// listed, where another change could come w/o its time moving on, is listed
+// again next time.
+class DiscoveryIndex {
+  static final String header = "jspec-discovery 1";
+  static final long racyNanos = 2_000_000_000L;
+
+  private Path file;
+  private String key;
+  private ConcurrentHashMap<String, Listing> before = new ConcurrentHashMap<String, Listing>();
+  private ConcurrentHashMap<String, Listing> after = new ConcurrentHashMap<String, Listing>();
+
+  static class Listing {
+    long mtime;
+    ArrayList<String> files = new ArrayList<String>();
+    ArrayList<String> directories = new ArrayList<String>();
+    ArrayList<String> ignoreFiles = new ArrayList<String>();
+
+    Listing(long mtime) {
+      this.mtime = mtime;
+    }
+  }
+
+  DiscoveryIndex(Path file, String key) {
+    this.file = file;
+    this.key = key;
+  }
+
+  static DiscoveryIndex load(Path file, String key) {
+    DiscoveryIndex index = new DiscoveryIndex(file, key);
+
+    try (BufferedReader in = Files.newBufferedReader(file)) {
+      if (!DiscoveryIndex.header.equals(in.readLine())) return index;
+      if (!("K " + key).equals(in.readLine())) return index;
+
+      Listing listing = null;
+      String line;
+      while ((line = in.readLine()) != null) {
+        if (line.length() < 2) continue;
+        String value = line.substring(2);
+
+        switch (line.charAt(0)) {
+          case 'D':
+            int space = value.indexOf(' ');
+            listing = new Listing(Long.parseLong(value.substring(0, space)));
+            index.before.put(value.substring(space + 1), listing);
+            break;
+          case 'F':
+            if (listing != null) listing.files.add(value);
+            break;
+          case 'S':
+            if (listing != null) listing.directories.add(value);
+            break;
+          case 'I':
+            if (listing != null) listing.ignoreFiles.add(value);
+            break;
+        }
+      }
+    } catch (NoSuchFileException exc) {
+      // nothing crawled yet
+    } catch (IOException | RuntimeException exc) {
+      // anything unreadable is just crawled again
+      System.err.println("Unable to read the discovery index " + file + ": " + exc);
+      index.before.clear();
+    }
+
+    return index;
+  }
+
+  // the listing from last time, if the directory hasn't changed since
+  Listing unchanged(String directory, long mtime) {
+    Listing listing = this.before.get(directory);
+
+    return listing != null && listing.mtime == mtime ? listing : null;
+  }
+
+  // keeps a directory's listing for next time; only directories recorded in
+  // this crawl are saved, so any that are gone drop out
+  void record(String directory, Listing listing, long listedAt) {
+    if (listedAt - listing.mtime < DiscoveryIndex.racyNanos) {
+      Listing racy = new Listing(-1);
+      racy.files = listing.files;
+      racy.directories = listing.directories;
+      racy.ignoreFiles = listing.ignoreFiles;
+      listing = racy;
+    }
+
+    this.after.put(directory, listing);
+  }
+
+  void save() throws IOException {
+    Files.createDirectories(this.file.toAbsolutePath().getParent());
+    Path temp = Files.createTempFile(this.file.toAbsolutePath().getParent(), "discovery", ".tmp");
+
+    try (BufferedWriter out = Files.newBufferedWriter(temp)) {
+      out.write(DiscoveryIndex.header);
+      out.newLine();
+      out.write("K " + this.key);
+      out.newLine();
+
+      for (Map.Entry<String, Listing> entry : new TreeMap<String, Listing>(this.after).entrySet()) {
+        out.write("D " + entry.getValue().mtime + " " + entry.getKey());
+        out.newLine();
+
+        for (String name : entry.getValue().files) {
+          out.write("F " + name);
+          out.newLine();
+        }
+
+        for (String name : entry.getValue().directories) {
+          out.write("S " + name);
+          out.newLine();
+        }
+
+        for (String name : entry.getValue().ignoreFiles) {
+          out.write("I " + name);
+          out.newLine();
+        }
+      }
+    }
+
+    // so another run reading the index never sees half of it
+    Files.move(temp, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+}
@@ -0,0 +1,137 @@
+package jspec.cli;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import jspec.lib.Group;
+import jspec.lib.Runner;
+
+public class DiscoveryIndexSpec extends Group {
+  public String desc = "class: cli.DiscoveryIndex";
+
+  public static void main(String[] args) {
+    DiscoveryIndexSpec spec = new DiscoveryIndexSpec();
+    new Runner(spec)
+      .run(false)
+      .resultStrings()
+      .forEach((node, i) -> System.out.println(node.getValue()));
+  }
+
+  // a change made to a tree that's been crawled once w/ an index, each
+  // directory last changed long enough ago for the index to be trusted
+  interface Change {
+    void change(Path root) throws IOException;
+  }
+
+  // the specs found crawling the tree again after the change, using the index
+  // saved by the first crawl
+  static List<String> recrawl(Change change) throws IOException {
+    Path root = Files.createTempDirectory("jspec-discovery");
+    Path indexFile = Files.createTempDirectory("jspec-discovery-index").resolve("discovery");
+
+    try {
+      for (String file : List.of("ASpec.java", "src/ASpec.java", "src/BSpec.java", "src/deep/CSpec.java")) {
+        Path path = root.resolve(file);
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, "");
+      }
+      DiscoveryIndexSpec.age(root);
+
+      DiscoveryIndexSpec.crawl(root, indexFile);
+      change.change(root);
+
+      return DiscoveryIndexSpec.crawl(root, indexFile);
+    } finally {
+      DiscoveryIndexSpec.delete(root);
+      DiscoveryIndexSpec.delete(indexFile.getParent());
+    }
+  }
+
+  static List<String> crawl(Path root, Path indexFile) throws IOException {
+    List<String> found = Collections.synchronizedList(new ArrayList<String>());
+    DiscoveryIndex index = DiscoveryIndex.load(indexFile, "**/*Spec.java");
+
+    new Crawler(root.toFile(), List.of("**/*Spec.java", "*Spec.java"), List.of())
+      .index(index)
+      .crawl(
+        file -> found.add(root.relativize(file).toString()),
+        (file, exc) -> found.add(file + ": " + exc));
+    index.save();
+
+    ArrayList<String> sorted = new ArrayList<String>(found);
+    Collections.sort(sorted);
+
+    return sorted;
+  }
+
+  // sets every directory's time well back, always to the same time, as if
+  // nothing had changed lately
+  static void age(Path root) throws IOException {
+    FileTime longAgo = FileTime.from(Instant.parse("2020-01-01T00:00:00Z"));
+
+    try (Stream<Path> paths = Files.walk(root)) {
+      for (Path path : paths.filter(Files::isDirectory).toList())
+        Files.setLastModifiedTime(path, longAgo);
+    }
+  }
+
+  static void delete(Path root) throws IOException {
+    try (Stream<Path> paths = Files.walk(root)) {
+      for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) Files.delete(path);
+    }
+  }
+
+  public String descUnchanged = "Takes an unchanged directory's files from the index w/o listing it";
+  public void testUnchanged() throws IOException {
+    List<String> found = recrawl(root -> {
+      // slipped in w/o the directory's time moving on, so only a listing
+      // would find it
+      Files.writeString(root.resolve("src/HiddenSpec.java"), "");
+      DiscoveryIndexSpec.age(root);
+    });
+
+    assert found.equals(List.of("ASpec.java", "src/ASpec.java", "src/BSpec.java", "src/deep/CSpec.java"))
+      : "found " + found;
+  }
+
+  public String descAdded = "Finds a file added to an indexed directory";
+  public void testAdded() throws IOException {
+    List<String> found = recrawl(root -> Files.writeString(root.resolve("src/DSpec.java"), ""));
+
+    assert found.equals(List.of(
+      "ASpec.java", "src/ASpec.java", "src/BSpec.java", "src/DSpec.java", "src/deep/CSpec.java"
+    )) : "found " + found;
+  }
+
+  public String descDeleted = "Drops a file deleted from an indexed directory";
+  public void testDeleted() throws IOException {
+    List<String> found = recrawl(root -> Files.delete(root.resolve("src/BSpec.java")));
+
+    assert found.equals(List.of("ASpec.java", "src/ASpec.java", "src/deep/CSpec.java"))
+      : "found " + found;
+  }
+
+  public String descRenamed = "Follows a file renamed inside an indexed directory";
+  public void testRenamed() throws IOException {
+    List<String> found = recrawl(root ->
+      Files.move(root.resolve("src/BSpec.java"), root.resolve("src/RenamedSpec.java")));
+
+    assert found.equals(List.of("ASpec.java", "src/ASpec.java", "src/RenamedSpec.java", "src/deep/CSpec.java"))
+      : "found " + found;
+  }
+
+  public String descDeeper = "Still looks in subdirectories of an unchanged directory";
+  public void testDeeper() throws IOException {
+    List<String> found = recrawl(root -> Files.writeString(root.resolve("src/deep/DSpec.java"), ""));
+
+    assert found.contains("src/deep/DSpec.java") : "found " + found;
+  }
+}
@@ -0,0 +1,80 @@
+package jspec.cli;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+
+import jspec.lib.Result;
+import jspec.lib.ResultsTree;
+
+// How long each spec class took the last time it was run, kept between runs
+// so shards can be balanced. Saved as one `<nanos>\t<class name>` per line.
+class Durations {
+  private Path file;
+  private TreeMap<String, Long> nanos = new TreeMap<String, Long>();
+
+  Durations(Path file) {
+    this.file = file;
+  }
+
+  static Durations load(Path file) {
+    Durations durations = new Durations(file);
+
+    try (BufferedReader in = Files.newBufferedReader(file)) {
+      String line;
+      while ((line = in.readLine()) != null) {
+        int tab = line.indexOf('\t');
+        // anything unreadable is just treated as not having been run
+        if (tab < 0) continue;
+
+        try {
+          durations.nanos.put(
+            line.substring(tab + 1),
+            Long.parseLong(line.substring(0, tab)));
+        } catch (NumberFormatException exc) {
+          continue;
+        }
+      }
+    } catch (NoSuchFileException exc) {
+      // no history yet
+    } catch (IOException exc) {
+      System.err.println("Unable to read test durations from " + file + ": " + exc);
+    }
+
+    return durations;
+  }
+
+  Long get(String className) {
+    return this.nanos.get(className);
+  }
+
+  boolean isEmpty() {
+    return this.nanos.isEmpty();
+  }
+
+  // take the time of each top level group, i.e. each spec class, that was run
+  Durations record(ResultsTree results) {
+    results.getChildren().forEach((node, i) -> {
+      Result group = node.getValue();
+      this.nanos.put(group.getCodeName(), group.getNanos());
+    });
+
+    return this;
+  }
+
+  void save() throws IOException {
+    Files.createDirectories(this.file.toAbsolutePath().getParent());
+
+    try (BufferedWriter out = Files.newBufferedWriter(this.file)) {
+      for (Map.Entry<String, Long> entry : this.nanos.entrySet()) {
+        out.write(entry.getValue() + "\t" + entry.getKey());
+        out.newLine();
+      }
+    }
+  }
+}
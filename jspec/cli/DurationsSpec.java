@@ -0,0 +1,81 @@
+package jspec.cli;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import jspec.lib.Group;
+import jspec.lib.ResultsTree;
+import jspec.lib.Runner;
+
+public class DurationsSpec extends Group {
+  public String desc = "class: cli.Durations";
+
+  public static void main(String[] args) {
+    DurationsSpec spec = new DurationsSpec();
+    new Runner(spec)
+      .run(false)
+      .resultStrings()
+      .forEach((node, i) -> System.out.println(node.getValue()));
+  }
+
+  public String descRoundTrip = "Durations saved are read back the same";
+  public void testRoundTrip() throws IOException {
+    Path dir = Files.createTempDirectory("jspec-durations");
+    Path file = dir.resolve(".jspec/durations");
+
+    try {
+      Files.createDirectories(file.getParent());
+      Files.write(file, List.of("1500\tjspec.example.ASpec", "20\tjspec.example.BSpec"));
+      Durations.load(file).save();
+
+      Durations read = Durations.load(file);
+      assert read.get("jspec.example.ASpec") == 1500;
+      assert read.get("jspec.example.BSpec") == 20;
+      assert read.get("jspec.example.CSpec") == null : "never run";
+    } finally {
+      Files.deleteIfExists(file);
+      Files.deleteIfExists(file.getParent());
+      Files.delete(dir);
+    }
+  }
+
+  public String descUnreadable = "Skips lines it can't read, as if those classes hadn't been run";
+  public void testUnreadable() throws IOException {
+    Path file = Files.createTempFile("jspec-durations", "");
+
+    try {
+      Files.write(file, List.of("no tab here", "soon\tjspec.example.ASpec", "7\tjspec.example.BSpec"));
+      Durations read = Durations.load(file);
+
+      assert read.get("jspec.example.ASpec") == null;
+      assert read.get("jspec.example.BSpec") == 7;
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  public String descMissing = "Starts out empty w/o a file";
+  public void testMissing() {
+    assert Durations.load(Path.of("no-such-durations")).isEmpty();
+  }
+
+  public String descRecord = "Records the time each class run took";
+  public void testRecord() {
+    ResultsTree results = new Runner().addGroup(new Timed.Quick()).run(true).getResults();
+    Durations durations = new Durations(Path.of("unsaved")).record(results);
+
+    Long nanos = durations.get(Timed.Quick.class.getName());
+    assert nanos != null && nanos > 0 : "took " + nanos;
+    assert results.getRoot().getHeadChild().getValue().getNanos() == nanos;
+  }
+}
+
+// public for the runner to get at it from another package, but not nested in
+// the spec so as not to be run as a part of it
+class Timed {
+  public static class Quick extends Group {
+    public void testPasses() {}
+  }
+}
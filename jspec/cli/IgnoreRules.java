@@ -0,0 +1,111 @@
+package jspec.cli;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.List;
+
+// The rules in a .gitignore or .jspecignore file, which apply to everything
+// below the directory it's in. The usual .gitignore patterns are understood:
+// `#` comments, `!` to take a file back out of those ignored, a trailing `/`
+// for directories only, & a leading or middle `/` to match the path from the
+// file's directory rather than just a name. Later rules win over earlier ones,
+// & a deeper file's rules over those above it.
+class IgnoreRules {
+  // read in this order in each directory, so .jspecignore has the last word
+  static final List<String> files = List.of(".gitignore", ".jspecignore");
+
+  private Path dir;
+  private ArrayList<Rule> rules = new ArrayList<Rule>();
+
+  static class Rule {
+    boolean negated;
+    boolean directoryOnly;
+    // matched against the path from the rules' directory, else the name
+    boolean anchored;
+    ArrayList<PathMatcher> matchers = new ArrayList<PathMatcher>();
+  }
+
+  IgnoreRules(Path dir) {
+    this.dir = dir;
+  }
+
+  static IgnoreRules read(Path file) throws IOException {
+    IgnoreRules rules = new IgnoreRules(file.getParent());
+    for (String line : Files.readAllLines(file)) rules.add(line);
+
+    return rules;
+  }
+
+  void add(String line) {
+    String pattern = line.stripTrailing();
+    if (pattern.isEmpty() || pattern.startsWith("#")) return;
+
+    Rule rule = new Rule();
+    if (pattern.startsWith("!")) {
+      rule.negated = true;
+      pattern = pattern.substring(1);
+    } else if (pattern.startsWith("\\")) {
+      // an escaped # or !
+      pattern = pattern.substring(1);
+    }
+
+    if (pattern.endsWith("/")) {
+      rule.directoryOnly = true;
+      pattern = pattern.substring(0, pattern.length() - 1);
+    }
+
+    rule.anchored = pattern.contains("/");
+    if (pattern.startsWith("/")) pattern = pattern.substring(1);
+    if (pattern.isEmpty()) return;
+
+    // braces mean nothing to git but group alternatives in a Java glob
+    pattern = pattern.replace("{", "\\{").replace("}", "\\}");
+
+    rule.matchers.add(IgnoreRules.glob(pattern));
+    // where git lets `**/` match no directories at all, a Java glob doesn't
+    if (pattern.startsWith("**/")) rule.matchers.add(IgnoreRules.glob(pattern.substring(3)));
+    if (pattern.contains("/**/")) rule.matchers.add(IgnoreRules.glob(pattern.replace("/**/", "/")));
+
+    this.rules.add(rule);
+  }
+
+  // whether the last rule matching the path ignores it, or null if none do
+  Boolean decide(Path path, boolean directory) {
+    Path relative = this.dir.relativize(path);
+    Boolean ignored = null;
+
+    for (Rule rule : this.rules) {
+      if (rule.directoryOnly && !directory) continue;
+
+      Path matched = rule.anchored ? relative : path.getFileName();
+      for (PathMatcher matcher : rule.matchers) {
+        if (matcher.matches(matched)) {
+          ignored = !rule.negated;
+          break;
+        }
+      }
+    }
+
+    return ignored;
+  }
+
+  // whether the rules of a directory & those above it ignore a path in it
+  static boolean ignored(List<IgnoreRules> rules, Path path, boolean directory) {
+    boolean ignored = false;
+
+    for (IgnoreRules file : rules) {
+      Boolean decision = file.decide(path, directory);
+      if (decision != null) ignored = decision;
+    }
+
+    return ignored;
+  }
+
+  private static PathMatcher glob(String pattern) {
+    return FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+  }
+}
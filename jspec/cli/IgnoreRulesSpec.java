@@ -0,0 +1,107 @@
+package jspec.cli;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import jspec.lib.Group;
+import jspec.lib.Runner;
+
+public class IgnoreRulesSpec extends Group {
+  public String desc = "class: cli.IgnoreRules";
+
+  public static void main(String[] args) {
+    IgnoreRulesSpec spec = new IgnoreRulesSpec();
+    new Runner(spec)
+      .run(false)
+      .resultStrings()
+      .forEach((node, i) -> System.out.println(node.getValue()));
+  }
+
+  static final Path root = Path.of("/project");
+
+  // the rules of an ignore file at the given directory, one line each
+  static IgnoreRules rules(Path dir, String... lines) {
+    IgnoreRules rules = new IgnoreRules(dir);
+    for (String line : lines) rules.add(line);
+
+    return rules;
+  }
+
+  static boolean ignored(IgnoreRules rules, String path, boolean directory) {
+    return IgnoreRules.ignored(List.of(rules), IgnoreRulesSpec.root.resolve(path), directory);
+  }
+
+  public String descNames = "A pattern w/o a slash matches a name at any depth";
+  public void testNames() {
+    IgnoreRules rules = rules(root, "*.tmp", "# *Spec.java", "");
+
+    assert ignored(rules, "a.tmp", false);
+    assert ignored(rules, "src/deep/b.tmp", false);
+    assert !ignored(rules, "src/ASpec.java", false) : "comments & blank lines are no rules";
+  }
+
+  public String descNegated = "`!` takes a path back out of those ignored by an earlier rule";
+  public void testNegated() {
+    IgnoreRules rules = rules(root, "*Spec.java", "!KeptSpec.java");
+
+    assert ignored(rules, "src/ASpec.java", false);
+    assert !ignored(rules, "src/KeptSpec.java", false) : "the later rule wins";
+    assert ignored(rules(root, "!KeptSpec.java", "*Spec.java"), "KeptSpec.java", false)
+      : "unless it comes first";
+  }
+
+  public String descAnchored = "A leading `/` matches from the ignore file's directory only";
+  public void testAnchored() {
+    IgnoreRules rules = rules(root, "/generated");
+
+    assert ignored(rules, "generated", true);
+    assert !ignored(rules, "src/generated", true) : "not deeper down";
+
+    IgnoreRules nested = rules(root.resolve("src"), "/generated");
+    assert ignored(nested, "src/generated", true) : "anchored to a nested file's own directory";
+    assert !ignored(nested, "generated", true);
+  }
+
+  public String descMiddleSlash = "A slash in the middle anchors the pattern too";
+  public void testMiddleSlash() {
+    IgnoreRules rules = rules(root, "src/*.java");
+
+    assert ignored(rules, "src/A.java", false);
+    assert !ignored(rules, "lib/src/A.java", false);
+  }
+
+  public String descDirectoryOnly = "A trailing `/` matches directories only";
+  public void testDirectoryOnly() {
+    IgnoreRules rules = rules(root, "out/");
+
+    assert ignored(rules, "out", true);
+    assert ignored(rules, "src/out", true) : "at any depth, as there's no other slash";
+    assert !ignored(rules, "out", false) : "not a file of the same name";
+  }
+
+  public String descDoubleStar = "`**` matches any number of directories, none included";
+  public void testDoubleStar() {
+    IgnoreRules leading = rules(root, "**/fixtures");
+    assert ignored(leading, "fixtures", true);
+    assert ignored(leading, "a/b/fixtures", true);
+
+    IgnoreRules middle = rules(root, "src/**/Gen*.java");
+    assert ignored(middle, "src/GenSpec.java", false);
+    assert ignored(middle, "src/a/b/GenSpec.java", false);
+    assert !ignored(middle, "lib/a/GenSpec.java", false);
+
+    IgnoreRules trailing = rules(root, "tmp/**");
+    assert ignored(trailing, "tmp/a/ASpec.java", false);
+    assert !ignored(trailing, "src/tmp/ASpec.java", false);
+  }
+
+  public String descDeeperWins = "A deeper directory's rules win over those above it";
+  public void testDeeperWins() {
+    List<IgnoreRules> rules = List.of(
+      rules(root, "*Spec.java"),
+      rules(root.resolve("src"), "!ASpec.java"));
+
+    assert !IgnoreRules.ignored(rules, root.resolve("src/ASpec.java"), false);
+    assert IgnoreRules.ignored(rules, root.resolve("src/BSpec.java"), false);
+  }
+}
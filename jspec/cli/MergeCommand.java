@@ -0,0 +1,108 @@
+package jspec.cli;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.Callable;
+import jspec.vendor.picocli.CommandLine.Command;
+import jspec.vendor.picocli.CommandLine.Option;
+import jspec.vendor.picocli.CommandLine.Parameters;
+
+import jspec.lib.ResultsArchive;
+import jspec.lib.ResultsTree;
+import jspec.lib.Runner;
+
+@Command(
+  name = "merge",
+  mixinStandardHelpOptions = true,
+  description = "Combines results saved by several runs, e.g. each `--shard` of a suite, into one report."
+)
+class MergeCommand implements Callable<Integer> {
+  @Option(
+    names = {"-c", "--concise"},
+    defaultValue = "false",
+    description = "Only report on failures & stats, skipping the list of all tests ran. Defaults to ${DEFAULT-VALUE}."
+  )
+  boolean concise = false;
+
+  @Option(
+    names = {"--timings"},
+    defaultValue = "false",
+    description = "Report the wall clock time, CPU time, memory allocated & time spent in before/after hooks of every test & group, & list the top level groups from slowest to fastest. Defaults to ${DEFAULT-VALUE}."
+  )
+  boolean timings = false;
+
+  @Option(
+    names = {"--slowest"},
+    arity = "0..1",
+    defaultValue = "0",
+    fallbackValue = "10",
+    paramLabel = "N",
+    description = "List the N slowest tests & groups, w/ the p50, p90, p99 & max time taken by the tests in each group. Given without a value, lists 10. Defaults to ${DEFAULT-VALUE} (no list)."
+  )
+  int slowest = 0;
+
+  @Option(
+    names = {"-o", "--out", "--outfile"},
+    description = "A file to save the report to instead of printing it to stdout."
+  )
+  File outFile;
+
+  @Parameters(
+    arity = "1..*",
+    paramLabel = "FILE",
+    description = "Results files saved with `--save` or `--shard`."
+  )
+  File[] files;
+
+  @Override
+  public Integer call() {
+    ResultsTree merged;
+
+    try {
+      merged = MergeCommand.merge(this.files);
+    } catch (IOException exc) {
+      System.err.println(exc.getMessage());
+      return 2;
+    }
+
+    // the whole suite's times make for the best balanced shards next time
+    Durations history = Durations.load(CLI.durationsFile());
+    try {
+      history.record(merged).save();
+    } catch (IOException exc) {
+      System.err.println("Unable to save test durations: " + exc);
+    }
+
+    Runner runner = new Runner()
+      .withResults(merged)
+      .timings(this.timings)
+      .slowest(Math.max(this.slowest, 0));
+
+    try (ReportSink report = ReportSink.open(this.outFile)) {
+      runner.writeResults(report.writer(), this.concise);
+    } catch (IOException exc) {
+      System.err.println("Unable to write the report to " + this.outFile + ": " + exc);
+      return 2;
+    }
+
+    return 0;
+  }
+
+  // each file's groups are added after those of the files before it
+  static ResultsTree merge(File[] files) throws IOException {
+    ResultsTree merged = null;
+
+    for (File file : files) {
+      try (BufferedReader in = Files.newBufferedReader(file.toPath())) {
+        if (merged == null) merged = ResultsArchive.read(in);
+        else ResultsArchive.read(in, merged);
+      } catch (IOException exc) {
+        throw new IOException("Unable to read results from " + file + ": " + exc.getMessage(), exc);
+      }
+    }
+
+    return merged;
+  }
+}
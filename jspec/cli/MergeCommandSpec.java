@@ -0,0 +1,107 @@
+package jspec.cli;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import jspec.lib.Group;
+import jspec.lib.ResultsArchive;
+import jspec.lib.ResultsTree;
+import jspec.lib.Runner;
+
+public class MergeCommandSpec extends Group {
+  public String desc = "class: cli.MergeCommand";
+
+  public static void main(String[] args) {
+    MergeCommandSpec spec = new MergeCommandSpec();
+    new Runner(spec)
+      .run(false)
+      .resultStrings()
+      .forEach((node, i) -> System.out.println(node.getValue()));
+  }
+
+  static ResultsTree run(Group ...groups) {
+    Runner runner = new Runner();
+    for (Group group : groups) runner.addGroup(group);
+
+    return runner.run(true).getResults();
+  }
+
+  // saves a run's results to a file, as --save or --shard would
+  static File save(Path dir, String name, ResultsTree results) throws IOException {
+    Path file = dir.resolve(name);
+
+    try (Writer out = Files.newBufferedWriter(file)) {
+      ResultsArchive.write(results, out);
+    }
+
+    return file.toFile();
+  }
+
+  static String report(ResultsTree results) {
+    return String.join("\n", new Runner().withResults(results).resultStrings());
+  }
+
+  public String descSameAsOneRun = "Merging each shard's results reports the same as running them all at once";
+  public void testSameAsOneRun() throws IOException {
+    Path dir = Files.createTempDirectory("jspec-merge");
+    File first = save(dir, "shard-1", run(new Shard.First()));
+    File second = save(dir, "shard-2", run(new Shard.Second()));
+
+    try {
+      String merged = report(MergeCommand.merge(new File[] { first, second }));
+      String combined = report(run(new Shard.First(), new Shard.Second()));
+
+      assert merged.equals(combined) : "merged:\n" + merged + "\ncombined:\n" + combined;
+      assert merged.contains("3/5 tests passed") : merged;
+    } finally {
+      Files.delete(first.toPath());
+      Files.delete(second.toPath());
+      Files.delete(dir);
+    }
+  }
+
+  public String descMissing = "Says which file couldn't be read";
+  public void testMissing() throws IOException {
+    Path dir = Files.createTempDirectory("jspec-merge");
+    File first = save(dir, "shard-1", run(new Shard.First()));
+    File missing = dir.resolve("shard-2").toFile();
+
+    try {
+      MergeCommand.merge(new File[] { first, missing });
+      assert false : "should have thrown";
+    } catch (IOException exc) {
+      assert exc.getMessage().startsWith("Unable to read results from " + missing) : exc.getMessage();
+    } finally {
+      Files.delete(first.toPath());
+      Files.delete(dir);
+    }
+  }
+}
+
+// the groups each shard runs, public for the runner to get at them from
+// another package, but not nested in the spec so as not to be run as a part
+// of it
+class Shard {
+  public static class First extends Group {
+    public void testPasses() {}
+
+    public void testFails() {
+      assert false : "expected";
+    }
+  }
+
+  public static class Second extends Group {
+    public void testPasses() {}
+
+    public class Nested extends Group {
+      public void testPasses() {}
+
+      public void testErrors() {
+        throw new IllegalStateException("broken");
+      }
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package jspec.cli;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import jspec.vendor.picocli.CommandLine.Command;
+import jspec.vendor.picocli.CommandLine.Option;
+import jspec.vendor.picocli.CommandLine.Parameters;
+
+import jspec.lib.JUnitXmlReporter;
+import jspec.lib.NdjsonReporter;
+import jspec.lib.RunLog;
+import jspec.lib.Runner;
+
+@Command(
+  name = "replay",
+  mixinStandardHelpOptions = true,
+  description = "Reports on a past run again from the log saved with `--log`, in any report format."
+)
+class ReplayCommand implements Callable<Integer> {
+  @Option(
+    names = {"-r", "--reporter"},
+    defaultValue = "text",
+    paramLabel = "FORMAT",
+    description = "How to report the results: `text`, `junit-xml` for CI servers, or `ndjson` for one JSON event per line. Defaults to ${DEFAULT-VALUE}."
+  )
+  String reporter = "text";
+
+  @Option(
+    names = {"-c", "--concise"},
+    defaultValue = "false",
+    description = "Only report on failures & stats, skipping the list of all tests ran. Defaults to ${DEFAULT-VALUE}."
+  )
+  boolean concise = false;
+
+  @Option(
+    names = {"--timings"},
+    defaultValue = "false",
+    description = "Report the wall clock time, CPU time, memory allocated & time spent in before/after hooks of every test & group, & list the top level groups from slowest to fastest. Defaults to ${DEFAULT-VALUE}."
+  )
+  boolean timings = false;
+
+  @Option(
+    names = {"--slowest"},
+    arity = "0..1",
+    defaultValue = "0",
+    fallbackValue = "10",
+    paramLabel = "N",
+    description = "List the N slowest tests & groups, w/ the p50, p90, p99 & max time taken by the tests in each group. Given without a value, lists 10. Defaults to ${DEFAULT-VALUE} (no list)."
+  )
+  int slowest = 0;
+
+  @Option(
+    names = {"-o", "--out", "--outfile"},
+    description = "A file to save the report to instead of printing it to stdout."
+  )
+  File outFile;
+
+  @Parameters(
+    index = "0",
+    paramLabel = "LOG",
+    description = "A run log saved with `--log`."
+  )
+  File log;
+
+  @Override
+  public Integer call() {
+    if (!CLI.reporters.contains(this.reporter)) {
+      System.err.println(new InvalidArgumentError(
+        "--reporter",
+        this.reporter,
+        "Must be one of `text`, `junit-xml` or `ndjson`").getMessage());
+      return 2;
+    }
+
+    try (ReportSink report = ReportSink.open(this.outFile)) {
+      if (this.reporter.equals("junit-xml")) {
+        // straight from the log to the report, w/o building a tree first
+        JUnitXmlReporter xml = new JUnitXmlReporter(report.writer());
+        RunLog.replay(this.log.toPath(), xml);
+
+        if (xml.getError() != null)
+          System.err.println("Unable to write the XML report: " + xml.getError().getMessage());
+      } else if (this.reporter.equals("ndjson")) {
+        NdjsonReporter json = new NdjsonReporter(report.writer());
+        RunLog.replay(this.log.toPath(), json);
+
+        if (json.getError() != null) throw json.getError();
+      } else {
+        new Runner()
+          .withResults(RunLog.read(this.log.toPath()))
+          .timings(this.timings)
+          .slowest(Math.max(this.slowest, 0))
+          .writeResults(report.writer(), this.concise);
+      }
+    } catch (IOException exc) {
+      System.err.println("Unable to replay " + this.log + ": " + exc.getMessage());
+      return 2;
+    }
+
+    return 0;
+  }
+}
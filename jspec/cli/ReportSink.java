@@ -0,0 +1,69 @@
+package jspec.cli;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+// Where a report is written, either a file or stdout. Output is buffered &
+// written out in large chunks, rather than flushing to the console for every
+// line, & only flushed once the report is done.
+class ReportSink implements AutoCloseable {
+  private static int bufferSize = 1 << 16;
+
+  private Writer out;
+  private boolean stdout;
+
+  private ReportSink(OutputStream out, boolean stdout) {
+    this.out = new BufferedWriter(
+      new OutputStreamWriter(out, StandardCharsets.UTF_8),
+      ReportSink.bufferSize);
+    this.stdout = stdout;
+  }
+
+  // a file, replacing anything already in it, or stdout if there's no file
+  static ReportSink open(File file) throws IOException {
+    if (file == null) {
+      // whatever System.out is at the time, e.g. a daemon's client, but
+      // still only written to in large chunks
+      return new ReportSink(System.out, true);
+    }
+
+    FileChannel channel = FileChannel.open(
+      file.toPath(),
+      StandardOpenOption.CREATE,
+      StandardOpenOption.WRITE,
+      StandardOpenOption.TRUNCATE_EXISTING);
+
+    return new ReportSink(Channels.newOutputStream(channel), false);
+  }
+
+  boolean isStdout() {
+    return this.stdout;
+  }
+
+  // for reporters that write for themselves, e.g. JUnit XML
+  Writer writer() {
+    // anything already printed to stdout has to come first
+    if (this.stdout) System.out.flush();
+
+    return this.out;
+  }
+
+  void flush() throws IOException {
+    this.out.flush();
+  }
+
+  // stdout is only flushed, as other output may still follow
+  @Override
+  public void close() throws IOException {
+    if (this.stdout) this.out.flush();
+    else this.out.close();
+  }
+}
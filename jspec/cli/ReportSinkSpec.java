@@ -0,0 +1,64 @@
+package jspec.cli;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import jspec.lib.Group;
+import jspec.lib.Runner;
+
+public class ReportSinkSpec extends Group {
+  public String desc = "class: cli.ReportSink";
+
+  public static void main(String[] args) {
+    ReportSinkSpec spec = new ReportSinkSpec();
+    new Runner(spec)
+      .run(false)
+      .resultStrings()
+      .forEach((node, i) -> System.out.println(node.getValue()));
+  }
+
+  public String descFile = "Writes the report to a file, replacing what was in it";
+  public void testFile() throws IOException {
+    File file = Files.createTempFile("jspec-report", ".txt").toFile();
+
+    try {
+      Files.writeString(file.toPath(), "an older, longer report\n");
+
+      try (ReportSink report = ReportSink.open(file)) {
+        assert !report.isStdout();
+        report.writer().write("1/1 tests passed ✅\n");
+      }
+
+      String written = Files.readString(file.toPath(), StandardCharsets.UTF_8);
+      assert written.equals("1/1 tests passed ✅\n") : written;
+    } finally {
+      Files.delete(file.toPath());
+    }
+  }
+
+  public String descStdout = "Writes to whatever System.out is when it's opened, once flushed";
+  public void testStdout() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    PrintStream stdout = System.out;
+
+    // other tests' progress may end up in it too when run side by side
+    System.setOut(new PrintStream(out, true, StandardCharsets.UTF_8));
+    try (ReportSink report = ReportSink.open(null)) {
+      assert report.isStdout();
+
+      System.out.print("progress ");
+      report.writer().write("report\n");
+      assert !out.toString(StandardCharsets.UTF_8).contains("report") : "buffered until flushed";
+    } finally {
+      System.setOut(stdout);
+    }
+
+    String written = out.toString(StandardCharsets.UTF_8);
+    assert written.indexOf("progress ") >= 0 && written.indexOf("progress ") < written.indexOf("report\n")
+      : written;
+  }
+}
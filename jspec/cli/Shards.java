@@ -0,0 +1,110 @@
+package jspec.cli;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+// Splits the spec classes between `count` machines, so each can run its own
+// share with `--shard=index/count`. Every machine must come up w/ the same
+// split, so it only depends on the class names & the recorded durations.
+class Shards {
+  final int index;
+  final int count;
+
+  Shards(int index, int count) {
+    this.index = index;
+    this.count = count;
+  }
+
+  // parses `i/n`, where i counts from 1
+  static Shards parse(String spec) throws InvalidArgumentError {
+    String[] parts = spec.split("/");
+
+    try {
+      if (parts.length == 2) {
+        int index = Integer.parseInt(parts[0].trim());
+        int count = Integer.parseInt(parts[1].trim());
+
+        if (count > 0 && index > 0 && index <= count)
+          return new Shards(index, count);
+      }
+    } catch (NumberFormatException exc) {
+      // reported below
+    }
+
+    throw new InvalidArgumentError(
+      "--shard",
+      spec,
+      "Must be `i/n`, running the i-th of n shards, counting from 1");
+  }
+
+  <T> ArrayList<T> pick(List<T> items, Function<T, String> name, Durations history) {
+    ArrayList<T> picked = new ArrayList<T>();
+
+    // without any history, fall back to spreading classes by name
+    boolean known = false;
+    for (T item : items) {
+      if (history.get(name.apply(item)) != null) known = true;
+    }
+
+    if (!known) {
+      for (T item : items) {
+        if (Math.floorMod(name.apply(item).hashCode(), this.count) == this.index - 1)
+          picked.add(item);
+      }
+
+      return picked;
+    }
+
+    // otherwise, hand out the longest classes first, each to whichever shard
+    // has the least to do so far; new classes are guessed to take the average
+    long total = 0;
+    int timed = 0;
+    for (T item : items) {
+      Long nanos = history.get(name.apply(item));
+      if (nanos == null) continue;
+
+      total += nanos;
+      ++timed;
+    }
+    long average = total / timed;
+
+    // positions in items, so the shard's share can be taken in order after
+    ArrayList<Integer> sorted = new ArrayList<Integer>();
+    for (int i = 0; i < items.size(); i++) sorted.add(i);
+    sorted.sort((a, b) -> {
+      String aName = name.apply(items.get(a));
+      String bName = name.apply(items.get(b));
+      long aNanos = Shards.estimate(history, aName, average);
+      long bNanos = Shards.estimate(history, bName, average);
+
+      if (aNanos != bNanos) return Long.compare(bNanos, aNanos);
+      return aName.compareTo(bName);
+    });
+
+    long[] loads = new long[this.count];
+    boolean[] mine = new boolean[items.size()];
+    for (int item : sorted) {
+      int lightest = 0;
+      for (int i = 1; i < this.count; i++) {
+        if (loads[i] < loads[lightest]) lightest = i;
+      }
+
+      loads[lightest] += Shards.estimate(history, name.apply(items.get(item)), average);
+      mine[item] = lightest == this.index - 1;
+    }
+
+    // run the shard's classes in the order they were found
+    for (int i = 0; i < items.size(); i++) {
+      if (mine[i]) picked.add(items.get(i));
+    }
+
+    return picked;
+  }
+
+  private static long estimate(Durations history, String name, long average) {
+    Long nanos = history.get(name);
+
+    return nanos != null ? nanos : average;
+  }
+}
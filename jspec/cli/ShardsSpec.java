@@ -0,0 +1,130 @@
+package jspec.cli;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Function;
+
+import jspec.lib.Group;
+import jspec.lib.Runner;
+
+public class ShardsSpec extends Group {
+  public String desc = "class: cli.Shards";
+
+  public static void main(String[] args) {
+    ShardsSpec spec = new ShardsSpec();
+    new Runner(spec)
+      .run(false)
+      .resultStrings()
+      .forEach((node, i) -> System.out.println(node.getValue()));
+  }
+
+  static List<String> names(int count) {
+    ArrayList<String> names = new ArrayList<String>();
+    for (int i = 0; i < count; i++) names.add("jspec.example.Spec" + i);
+
+    return names;
+  }
+
+  // durations of the classes named, in ms, from a file like the one saved
+  static Durations durations(List<String> names, long ...millis) throws IOException {
+    Path file = Files.createTempFile("jspec-durations", "");
+
+    try {
+      ArrayList<String> lines = new ArrayList<String>();
+      for (int i = 0; i < millis.length; i++) lines.add(millis[i] * 1_000_000 + "\t" + names.get(i));
+      Files.write(file, lines);
+
+      return Durations.load(file);
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  // each shard's pick, for every shard
+  static List<List<String>> split(List<String> names, int count, Durations history) {
+    ArrayList<List<String>> shards = new ArrayList<List<String>>();
+    for (int i = 1; i <= count; i++)
+      shards.add(new Shards(i, count).pick(names, Function.identity(), history));
+
+    return shards;
+  }
+
+  // every class is picked by exactly one shard, in the order given
+  static void assertCovers(List<String> names, List<List<String>> shards) {
+    HashSet<String> picked = new HashSet<String>();
+
+    for (List<String> shard : shards) {
+      for (String name : shard) assert picked.add(name) : name + " is in more than one shard";
+
+      ArrayList<String> ordered = new ArrayList<String>(names);
+      ordered.retainAll(shard);
+      assert ordered.equals(shard) : "out of order: " + shard;
+    }
+
+    assert picked.size() == names.size() : (names.size() - picked.size()) + " classes weren't picked";
+  }
+
+  public String descParse = "Parses `i/n`, w/ i counting from 1 up to n";
+  public void testParse() throws InvalidArgumentError {
+    Shards shards = Shards.parse("2/3");
+    assert shards.index == 2 && shards.count == 3;
+
+    for (String invalid : List.of("0/3", "4/3", "1/0", "1", "a/b", "1/2/3")) {
+      try {
+        Shards.parse(invalid);
+        assert false : invalid + " should be invalid";
+      } catch (InvalidArgumentError exc) {
+        assert exc.getMessage().contains("--shard") : exc.getMessage();
+      }
+    }
+  }
+
+  public String descByName = "Without any durations, splits the classes by name, each to one shard";
+  public void testByName() {
+    List<String> names = names(23);
+    Durations none = new Durations(Path.of("none"));
+
+    for (int count = 1; count <= 5; count++) {
+      List<List<String>> shards = split(names, count, none);
+
+      assertCovers(names, shards);
+      assert shards.equals(split(names, count, none)) : "the same every time";
+    }
+  }
+
+  public String descByTime = "With durations, still gives each class to exactly one shard, new ones included";
+  public void testByTime() throws IOException {
+    List<String> names = names(23);
+    // the last few have never been run
+    Durations history = durations(names, 5, 40, 3, 3, 12, 7, 1, 90, 2, 8, 8, 15, 4, 6, 30, 9, 11, 2, 1, 3);
+
+    for (int count = 1; count <= 5; count++) {
+      List<List<String>> shards = split(names, count, history);
+
+      assertCovers(names, shards);
+      assert shards.equals(split(names, count, history)) : "the same every time";
+    }
+  }
+
+  public String descBalanced = "Balances the shards' total times, longest classes first";
+  public void testBalanced() throws IOException {
+    List<String> names = names(9);
+    long[] millis = { 9, 8, 7, 6, 5, 4, 3, 2, 1 };
+    Durations history = durations(names, millis);
+
+    List<List<String>> shards = split(names, 3, history);
+    assertCovers(names, shards);
+
+    // 45 ms in all, so 15 each at best
+    for (List<String> shard : shards) {
+      long total = 0;
+      for (String name : shard) total += history.get(name) / 1_000_000;
+
+      assert total >= 14 && total <= 16 : shard + " takes " + total + " ms";
+    }
+  }
+}
@@ -0,0 +1,134 @@
+package jspec.cli;
+
+import java.lang.invoke.MethodHandles;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Loads compiled spec classes from their bytecode before asking its parent,
+// so the classes just compiled always win over any stale copies left on the
+// class path. Anything else is left to the parent.
+//
+// A spec in a package the parent already has classes from, e.g. a spec of
+// jspec itself, may use their package-private parts, which only works from
+// the same loader. Classes in such a package are defined in the parent
+// instead, through a Lookup on one of the classes they use, supertypes first.
+// As the parent can't find them by itself when they refer to each other, the
+// rest of the package is defined along w/ the first of them. Those can't be
+// defined again by a later loader in the same JVM, so any changes to them are
+// warned about & only picked up once it's restarted.
+class SpecClassLoader extends ClassLoader {
+  // the bytecode of each class defined in a parent, by name
+  private static ConcurrentHashMap<String, byte[]> definedInParent = new ConcurrentHashMap<String, byte[]>();
+
+  private Map<String, byte[]> classes;
+  private HashMap<String, Class<?>> defined = new HashMap<String, Class<?>>();
+  // by package, null for packages kept in this loader
+  private HashMap<String, MethodHandles.Lookup> lookups = new HashMap<String, MethodHandles.Lookup>();
+  private HashSet<String> shared = new HashSet<String>();
+
+  SpecClassLoader(Map<String, byte[]> classes, ClassLoader parent) {
+    super(parent);
+    this.classes = classes;
+  }
+
+  @Override
+  protected synchronized Class<?> loadClass(String name, boolean resolve)
+    throws ClassNotFoundException
+  {
+    if (!this.classes.containsKey(name)) return super.loadClass(name, resolve);
+
+    Class<?> cls = this.defined.get(name);
+    if (cls != null) return cls;
+
+    String pkg = ClassFile.packageOf(name);
+    MethodHandles.Lookup lookup = this.lookup(pkg);
+
+    if (lookup == null) {
+      byte[] bytes = this.classes.get(name);
+      cls = this.defineClass(name, bytes, 0, bytes.length);
+      this.defined.put(name, cls);
+    } else {
+      cls = this.defineIn(lookup, name);
+
+      if (this.shared.add(pkg)) {
+        for (String other : this.classes.keySet()) {
+          if (ClassFile.packageOf(other).equals(pkg)) this.defineIn(lookup, other);
+        }
+      }
+    }
+
+    if (resolve) this.resolveClass(cls);
+
+    return cls;
+  }
+
+  private Class<?> defineIn(MethodHandles.Lookup lookup, String name) throws ClassNotFoundException {
+    Class<?> cls = this.defined.get(name);
+    if (cls != null) return cls;
+
+    byte[] bytes = this.classes.get(name);
+    for (String supertype : ClassFile.read(bytes).supertypes) {
+      if (this.classes.containsKey(supertype)) this.loadClass(supertype, false);
+    }
+
+    // defined while its supertypes were
+    cls = this.defined.get(name);
+    if (cls != null) return cls;
+
+    try {
+      cls = lookup.defineClass(bytes);
+      SpecClassLoader.definedInParent.put(name, bytes);
+    } catch (IllegalAccessException exc) {
+      throw new ClassNotFoundException(name, exc);
+    } catch (LinkageError exc) {
+      // the parent had already loaded its own copy, which has to do
+      try {
+        cls = Class.forName(name, false, this.getParent());
+      } catch (ClassNotFoundException notFound) {
+        throw exc;
+      }
+
+      byte[] before = SpecClassLoader.definedInParent.get(name);
+      if (before != null && !Arrays.equals(before, bytes))
+        System.err.println(
+          "Warning: " + name + " has changed but can't be loaded again, " +
+          "the old version runs until the JVM is restarted");
+    }
+
+    this.defined.put(name, cls);
+
+    return cls;
+  }
+
+  // a Lookup in the parent's side of the package, if any of the package's
+  // classes use a class the parent can find there
+  private MethodHandles.Lookup lookup(String pkg) {
+    if (this.lookups.containsKey(pkg)) return this.lookups.get(pkg);
+
+    MethodHandles.Lookup lookup = null;
+
+    search:
+    for (Map.Entry<String, byte[]> entry : this.classes.entrySet()) {
+      if (!ClassFile.packageOf(entry.getKey()).equals(pkg)) continue;
+
+      for (String used : ClassFile.read(entry.getValue()).references) {
+        if (this.classes.containsKey(used) || !ClassFile.packageOf(used).equals(pkg)) continue;
+
+        try {
+          Class<?> anchor = Class.forName(used, false, this.getParent());
+          lookup = MethodHandles.privateLookupIn(anchor, MethodHandles.lookup());
+          break search;
+        } catch (ClassNotFoundException | IllegalAccessException | LinkageError exc) {
+          continue;
+        }
+      }
+    }
+
+    this.lookups.put(pkg, lookup);
+
+    return lookup;
+  }
+}
@@ -0,0 +1,159 @@
+package jspec.lib;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import java.util.Set;
+
+// The failures of a run, grouped by their stack trace, so e.g. a broken
+// beforeEach that fails every test in a group is shown once w/ the names of
+// the tests it failed, rather than once per test. Traces are trimmed to the
+// frames that matter & only turned into strings as they're written out.
+class FailureReport {
+  // most frames shown for a trace, & most names listed under one
+  static int maxFrames = 20;
+  static int maxNames = 10;
+
+  private LinkedHashMap<Trace, ArrayList<Result>> failures =
+    new LinkedHashMap<Trace, ArrayList<Result>>();
+
+  void add(Result test) {
+    this.failures
+      .computeIfAbsent(new Trace(test), trace -> new ArrayList<Result>())
+      .add(test);
+  }
+
+  // in the order each trace was first seen
+  void write(ReportLines out) throws IOException {
+    for (Trace trace : this.failures.keySet()) {
+      trace.write(this.failures.get(trace), out);
+    }
+  }
+
+  // A failure w/ its stack trace trimmed to the test's own frames; two are
+  // equal when they'd be shown the same, however deep in the runner's
+  // threads each was thrown.
+  static class Trace {
+    private Throwable exc;
+    private boolean timedOut;
+    private StackTraceElement[] frames;
+    // frames left out, from the runner, reflection or past the limit
+    private int hidden;
+
+    Trace(Result test) {
+      this.exc = ResultsArchive.failure(test);
+      this.timedOut = test.progressChar() == 'T';
+
+      StackTraceElement[] all = this.exc.getStackTrace();
+      ArrayList<StackTraceElement> shown = new ArrayList<StackTraceElement>();
+
+      for (StackTraceElement frame : all) {
+        // everything from the runner down is the same for every test
+        if (Trace.isRunner(frame)) break;
+        if (!Trace.isReflection(frame)) shown.add(frame);
+      }
+
+      // thrown by the runner itself, so nothing of it can be left out
+      if (shown.isEmpty()) shown.addAll(Arrays.asList(all));
+
+      this.frames = shown
+        .subList(0, Math.min(shown.size(), FailureReport.maxFrames))
+        .toArray(new StackTraceElement[0]);
+      this.hidden = all.length - this.frames.length;
+    }
+
+    // the classes that find & run tests, as opposed to jspec's other classes,
+    // which a test may well be testing
+    static final Set<String> runner = Set.of(
+      "jspec.lib.Group",
+      "jspec.lib.GroupTask",
+      "jspec.lib.Runner",
+      "jspec.lib.RunContext",
+      "jspec.lib.Watchdog",
+      "jspec.lib.TestPlan",
+      "jspec.lib.ForkedWorker");
+
+    static boolean isRunner(StackTraceElement frame) {
+      String name = frame.getClassName();
+
+      // nested classes & lambdas are part of the class they're in
+      int nested = name.indexOf('$');
+      if (nested >= 0) name = name.substring(0, nested);
+
+      return Trace.runner.contains(name);
+    }
+
+    static boolean isReflection(StackTraceElement frame) {
+      String name = frame.getClassName();
+
+      return name.startsWith("java.lang.reflect.")
+        || name.startsWith("java.lang.invoke.")
+        || name.startsWith("jdk.internal.reflect.")
+        || name.startsWith("sun.reflect.");
+    }
+
+    // the first test's failure, then the names of the rest that had it too
+    void write(ArrayList<Result> tests, ReportLines out) throws IOException {
+      out.write("");
+      out.write("");
+      out.write("=".repeat(80));
+      out.write((this.timedOut ? "⏰ TIMEOUT: " : "❌ FAILURE: ") + tests.get(0).getName());
+      out.write("-".repeat(80));
+      out.write(this.exc.toString());
+      out.write("");
+
+      for (StackTraceElement frame : this.frames) {
+        out.write("        at " + frame);
+      }
+      if (this.hidden > 0) out.write("        ... " + this.hidden + " more");
+
+      int others = tests.size() - 1;
+      if (others == 0) return;
+
+      out.write("");
+      out.write(
+        others + " more test" + (others == 1 ? "" : "s")
+        + " failed with the same trace:");
+
+      int listed = Math.min(others, FailureReport.maxNames);
+      for (int i = 1; i <= listed; i++) {
+        out.write("  " + tests.get(i).getName());
+      }
+      if (others > listed) out.write("  ... & " + (others - listed) + " more");
+    }
+
+    // the failure & the same frames, in the form Java prints a stack trace,
+    // for reports read by other tools
+    String stack() {
+      StringBuilder out = new StringBuilder(this.exc.toString());
+
+      for (StackTraceElement frame : this.frames) {
+        out.append("\n\tat ").append(frame);
+      }
+      if (this.hidden > 0) out.append("\n\t... ").append(this.hidden).append(" more");
+
+      return out.append("\n").toString();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Trace)) return false;
+
+      Trace trace = (Trace) other;
+      return this.timedOut == trace.timedOut
+        && this.exc.getClass() == trace.exc.getClass()
+        && Objects.equals(this.exc.getMessage(), trace.exc.getMessage())
+        && Arrays.equals(this.frames, trace.frames);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(
+        this.exc.getClass(),
+        this.exc.getMessage(),
+        Arrays.hashCode(this.frames));
+    }
+  }
+}
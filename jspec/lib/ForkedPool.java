@@ -0,0 +1,330 @@
+package jspec.lib;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jspec.utils.list.DoublyLinkedList;
+
+// Runs each top level Group in one of a pool of worker JVMs (see ForkedWorker),
+// so groups that touch static state can't get in each other's way. Workers
+// are reused from one group to the next; one that crashes or runs out of
+// memory is replaced & the tests it didn't finish are reported as errors.
+class ForkedPool {
+  // how long past the run's deadline a worker has to report its own
+  // timeouts before it's killed
+  static final long graceMillis = 1000;
+
+  private int size;
+  private RunContext context;
+  private List<String> command;
+
+  ForkedPool(int size, RunContext context, int isolation) {
+    this.size = size;
+    this.context = context;
+
+    // workers check assertions if this JVM does
+    boolean assertions = false;
+    assert assertions = true;
+
+    this.command = new ArrayList<String>();
+    this.command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+    if (assertions) this.command.add("-ea");
+    // a worker that runs out of memory is no use to anyone, so it's replaced
+    this.command.add("-XX:+ExitOnOutOfMemoryError");
+    // classes compiled somewhere other than this JVM's class path, as the CLI
+    // does, are found through the jspec.class.path property
+    String classPath = System.getProperty("java.class.path");
+    String extra = System.getProperty("jspec.class.path");
+    this.command.add("-cp");
+    this.command.add(extra == null ? classPath : extra + File.pathSeparator + classPath);
+    this.command.add(ForkedWorker.class.getName());
+    this.command.add(Long.toString(context.testTimeout));
+    this.command.add(Long.toString(context.groupTimeout));
+    this.command.add(Integer.toString(isolation));
+  }
+
+  void runAll(DoublyLinkedList<Group> groups, Result root) {
+    ArrayList<Group> pending = new ArrayList<Group>();
+    groups.forEach((node, i) -> pending.add(node.getValue()));
+    if (pending.isEmpty()) return;
+
+    // each thread feeds one worker the next group until there are none left
+    AtomicInteger next = new AtomicInteger();
+    int workers = Math.min(this.size, pending.size());
+    ArrayList<Callable<Void>> feeders = new ArrayList<Callable<Void>>();
+
+    for (int w = 0; w < workers; w++) {
+      feeders.add(() -> {
+        ForkedProcess process = null;
+
+        try {
+          int i;
+          while ((i = next.getAndIncrement()) < pending.size()) {
+            // no new classes are started once the run is cancelled or out of time
+            if (this.context.isCancelled() || this.context.budget(0, 0) <= 0) break;
+
+            Group group = pending.get(i);
+            ForkedRun run = new ForkedRun(this.context, root, group, i);
+
+            try {
+              if (process == null) process = new ForkedProcess(this.command);
+            } catch (IOException exc) {
+              run.lost("Unable to start a worker JVM (" + exc.getMessage() + ")");
+              continue;
+            }
+
+            if (!process.run(group, run)) process = null;
+          }
+        } finally {
+          if (process != null) process.close();
+        }
+
+        return null;
+      });
+    }
+
+    ExecutorService threads = Executors.newFixedThreadPool(
+      workers,
+      RunContext.daemonThreads("jspec-fork-"));
+
+    try {
+      threads.invokeAll(feeders);
+    } catch (InterruptedException exc) {
+      Thread.currentThread().interrupt();
+    } finally {
+      threads.shutdownNow();
+    }
+  }
+}
+
+// A single worker JVM, talking over its stdin & stdout.
+class ForkedProcess {
+  private Process process;
+  private Writer to;
+  private BufferedReader from;
+
+  ForkedProcess(List<String> command) throws IOException {
+    this.process = new ProcessBuilder(command).start();
+    ForkedProcess.pump(this.process.getErrorStream());
+    this.to = new BufferedWriter(new OutputStreamWriter(
+      this.process.getOutputStream(), StandardCharsets.UTF_8));
+    this.from = new BufferedReader(new InputStreamReader(
+      this.process.getInputStream(), StandardCharsets.UTF_8));
+
+    try {
+      ResultsArchive.readHeader(this.from);
+    } catch (IOException exc) {
+      this.process.destroyForcibly();
+      throw new IOException(this.reason());
+    }
+  }
+
+  // copies what the worker prints to whatever System.err is as it comes, so
+  // it goes wherever this JVM's own output does, e.g. to a daemon's client
+  private static void pump(InputStream in) {
+    Thread pump = new Thread(() -> {
+      byte[] buffer = new byte[8192];
+      int read;
+
+      try (in) {
+        while ((read = in.read(buffer)) != -1) {
+          PrintStream err = System.err;
+          err.write(buffer, 0, read);
+          err.flush();
+        }
+      } catch (IOException exc) {
+        // the worker is gone
+      }
+    }, "jspec-fork-stderr");
+
+    pump.setDaemon(true);
+    pump.start();
+  }
+
+  // runs the group's class in the worker, giving its results to the run as
+  // they arrive; false if the worker died first & has been shut down
+  boolean run(Group group, ForkedRun run) {
+    // the worker is given what's left of the run's time, & killed if it
+    // hasn't finished a little after, e.g. stuck in a static initializer
+    long deadline = run.context.runDeadline;
+    long remaining = deadline == 0 ? 0 : Math.max(1, (deadline - System.nanoTime()) / 1_000_000);
+    AtomicBoolean overran = new AtomicBoolean();
+    ScheduledFuture<?> alarm = remaining == 0
+      ? null
+      : Watchdog.watch(remaining + ForkedPool.graceMillis, () -> {
+        overran.set(true);
+        this.process.destroyForcibly();
+      });
+
+    try {
+      this.to.write(group.getClass().getName() + " " + remaining + "\n");
+      this.to.flush();
+
+      if (new ResultsReplay(this.from, run.root, run.ordinal, run).replay())
+        return true;
+    } catch (IOException exc) {
+      // the worker is gone, or not making any sense, either way it's replaced
+    } finally {
+      if (alarm != null) alarm.cancel(false);
+    }
+
+    run.lost(overran.get() ? "Worker JVM ran past the run's time limit" : this.reason());
+    this.process.destroyForcibly();
+
+    return false;
+  }
+
+  private String reason() {
+    try {
+      if (this.process.waitFor(1, TimeUnit.SECONDS))
+        return "Worker JVM exited with code " + this.process.exitValue();
+    } catch (InterruptedException exc) {
+      Thread.currentThread().interrupt();
+    }
+
+    return "Worker JVM stopped responding";
+  }
+
+  void close() {
+    try {
+      // a worker exits once it has nothing left to read
+      this.to.close();
+      if (this.process.waitFor(5, TimeUnit.SECONDS)) return;
+    } catch (IOException exc) {
+      // it's already gone
+    } catch (InterruptedException exc) {
+      Thread.currentThread().interrupt();
+    }
+
+    this.process.destroyForcibly();
+  }
+}
+
+// Passes the results of one top level group from a worker on to the run,
+// keeping track of what was reported so anything a crash cut short can be
+// reported as an error instead.
+class ForkedRun implements RunListener {
+  RunContext context;
+  Result root;
+  Group group;
+  int ordinal;
+  // groups started but not finished & the names of each one's results so far
+  private ArrayList<Result> open = new ArrayList<Result>();
+  private IdentityHashMap<Result, HashSet<String>> reported =
+    new IdentityHashMap<Result, HashSet<String>>();
+
+  ForkedRun(RunContext context, Result root, Group group, int ordinal) {
+    this.context = context;
+    this.root = root;
+    this.group = group;
+    this.ordinal = ordinal;
+  }
+
+  @Override
+  public void groupStarted(Result group, Result parent) {
+    if (this.reported.containsKey(parent))
+      this.reported.get(parent).add(group.getCodeName());
+
+    this.open.add(group);
+    this.reported.put(group, new HashSet<String>());
+    this.context.listeners.groupStarted(group, parent);
+  }
+
+  @Override
+  public void testStarted(Result test, Result group) {
+    this.context.testStarted(test, group);
+  }
+
+  @Override
+  public void testPassed(Result test, Result group) {
+    this.testFinished(test, group);
+  }
+
+  @Override
+  public void testFailed(Result test, Result group) {
+    this.testFinished(test, group);
+  }
+
+  private void testFinished(Result test, Result group) {
+    this.reported.get(group).add(test.getCodeName());
+    this.context.testFinished(test, group);
+  }
+
+  @Override
+  public void groupFinished(Result group) {
+    this.open.remove(group);
+    this.context.listeners.groupFinished(group);
+  }
+
+  // reports every test the worker didn't get to as an error, innermost
+  // group first, then finishes the groups left open
+  void lost(String reason) {
+    if (this.open.isEmpty()) {
+      Result result = this.group.newGroupResult().at(this.ordinal);
+      this.groupStarted(result, this.root);
+    }
+
+    while (!this.open.isEmpty()) {
+      Result group = this.open.get(this.open.size() - 1);
+
+      try {
+        Class<?> type = Class.forName(
+          group.getCodeName(), false, this.group.getClass().getClassLoader());
+        this.lost(TestPlan.of(type), group, reason);
+      } catch (ClassNotFoundException exc) {
+        // nothing more is known about what it would have run
+      }
+
+      this.groupFinished(group);
+    }
+  }
+
+  private void lost(TestPlan plan, Result group, String reason) {
+    HashSet<String> done = this.reported.get(group);
+
+    // each lost result takes the place it was planned to have, the same as
+    // in a run that finished; results that did come back, maybe out of order
+    // w/ --isolate, already hold theirs
+    for (int i = 0; i < plan.tests.size(); i++) {
+      TestPlan.PlannedTest test = plan.tests.get(i);
+      if (done.contains(test.name)) continue;
+
+      Result result = new Result(test.name)
+        .at(i)
+        .fail(new WorkerCrash(reason, plan.type.getName()));
+      this.testStarted(result, group);
+      this.testFinished(result, group);
+    }
+
+    // nested groups are placed after the group's own tests
+    for (int i = 0; i < plan.children.size(); i++) {
+      TestPlan.PlannedGroup child = plan.children.get(i);
+      if (done.contains(child.type.getName())) continue;
+
+      Result result = new Result(child.type.getName()).at(plan.tests.size() + i);
+      this.groupStarted(result, group);
+      this.lost(TestPlan.of(child.type), result, reason);
+      this.groupFinished(result);
+    }
+  }
+}
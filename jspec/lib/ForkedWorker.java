@@ -0,0 +1,87 @@
+package jspec.lib;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+// The other end of a ForkedPool, run in its own JVM. Runs each Group class
+// named on stdin, one at a time & each followed by the ms left of the run's
+// time limit (0 for none), writing its results to stdout as they happen
+// followed by an empty line once the class is done. Anything the tests print
+// goes to stderr instead, so it can't get mixed up with the results.
+//
+// Takes the default test & group time limits & how many tests to run at once
+// on fresh instances (0 to run them in order) as arguments.
+public class ForkedWorker {
+  public static void main(String[] args) throws IOException {
+    long testTimeout = Long.parseLong(args[0]);
+    long groupTimeout = Long.parseLong(args[1]);
+    int isolation = Integer.parseInt(args[2]);
+
+    Writer out = new BufferedWriter(new OutputStreamWriter(
+      new FileOutputStream(FileDescriptor.out), StandardCharsets.UTF_8));
+    System.setOut(System.err);
+    BufferedReader in = new BufferedReader(
+      new InputStreamReader(System.in, StandardCharsets.UTF_8));
+
+    // tells the pool the worker is up
+    out.write(ResultsArchive.header + "\n");
+    out.flush();
+
+    String line;
+    while ((line = in.readLine()) != null) {
+      int space = line.lastIndexOf(' ');
+      String className = line.substring(0, space);
+      long runTimeout = Long.parseLong(line.substring(space + 1));
+
+      ResultsRecorder recorder = new ResultsRecorder(out);
+      Group group = ForkedWorker.create(className, recorder);
+
+      if (group != null) {
+        new Runner()
+          .addGroup(group)
+          .timeouts(testTimeout, groupTimeout, runTimeout)
+          .isolate(isolation)
+          .keepResults(false)
+          .addListener(recorder)
+          .run(true);
+      }
+
+      out.write("\n");
+      out.flush();
+    }
+
+    // the pool is done w/ this worker; don't wait on any abandoned tests
+    System.exit(0);
+  }
+
+  // a class that can't be created is reported as a group w/ one failed test
+  private static Group create(String className, ResultsRecorder recorder) {
+    Throwable error;
+
+    try {
+      TestPlan plan = TestPlan.of(Class.forName(className));
+      if (plan.create != null) return (Group)plan.create.invokeExact();
+
+      error = new NoSuchMethodException(className + ".<init>()");
+    } catch (Throwable exc) {
+      error = exc;
+    }
+
+    Result root = new Result("");
+    Result group = new Result(className);
+    Result test = new Result("new " + className + "()").fail(error);
+
+    recorder.groupStarted(group, root);
+    recorder.testFailed(test, group);
+    recorder.groupFinished(group);
+
+    return null;
+  }
+}
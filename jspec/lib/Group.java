@@ -1,16 +1,25 @@
 package jspec.lib;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Method;
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import jspec.utils.list.DoublyLinkedList;
 
 public class Group {
   static String testPrefix = "test";
   static String descPrefix = "desc";
+  static String timeoutPrefix = "timeout";
 
   public String desc = null;
+  // time limit in ms for all of this group's tests, 0 means no limit
+  public long timeout = 0;
+
+  // the instance this group was built from, if it is a nested group
+  private Group enclosing = null;
 
   public void before() {
     // does nothing by default
@@ -33,103 +42,329 @@ public class Group {
   }
 
   public VisitResults visit(boolean silent) {
-    // this.getClass() will return a Group or any descendent of it
-    // using ? extends Group allows for that possibility
-    Class<? extends Group> instanceClass = this.getClass();
-    Method[] tests = instanceClass.getDeclaredMethods();
-    Class<?>[] nestedClasses = instanceClass.getDeclaredClasses();
+    return this.visit(new RunContext(silent), this.newGroupResult());
+  }
+
+  VisitResults visit(RunContext context, Result group) {
+    // this.getClass() will return a Group or any descendent of it, whose
+    // tests & nested groups are only looked up the first time it's visited
+    TestPlan plan = TestPlan.of(this.getClass());
 
     return new VisitResults(
-        this.evaluate(tests, instanceClass, silent),
-        this.findChildren(nestedClasses, this));
+        this.evaluate(plan, context, group),
+        this.findChildren(plan));
   }
 
   private DoublyLinkedList<Result> evaluate(
-    Method[] tests,
-    Class<? extends Group> instanceClass,
-    boolean silent
+    TestPlan plan,
+    RunContext context,
+    Result group
   ) {
+    // isolated tests each need their own instance, if one can't be made then
+    // the group falls back to running its tests in order on this instance
+    boolean isolated = context.isolation != null && this.fresh() != null;
+    // every test in the group has to finish before the group's time is up
+    long groupDeadline = context.deadline(this.findGroupTimeout(plan, context));
+
     DoublyLinkedList<Result> results = new DoublyLinkedList<Result>();
+    ArrayList<CompletableFuture<Result>> pending =
+      new ArrayList<CompletableFuture<Result>>();
 
     // perform setup tasks before executing any tests
-    this.before();
+    // isolated tests perform their own on each fresh instance instead
+    if (!isolated && plan.hasBefore) this.hook(group, true, () -> this.before());
 
-    for (Method test : tests) {
-      String name = test.getName();
-      if (name.startsWith(Group.testPrefix)) {
-        Result result = new Result(name);
-        String desc = this.findDescName(name, instanceClass);
+    for (int i = 0; i < plan.tests.size() && !context.isCancelled(); i++) {
+      TestPlan.PlannedTest test = plan.tests.get(i);
+      Executor executor;
 
-        if (desc != null) {
-          result.describe(desc);
-        }
+      if (isolated)
+        executor = context.isolation;
+      // a test w/ a time limit has to run on another thread so this one is
+      // free to give up on it
+      else if (context.budget(this.findTimeout(test), groupDeadline) != RunContext.NONE)
+        executor = Watchdog.workers;
+      else
+        executor = Runnable::run;
 
-        try {
-          this.beforeEach();
-          test.invoke(this);
-          this.afterEach();
-          results.append(result.pass());
-          if (!silent) System.out.print('.');
-        } catch (InvocationTargetException exc) {
-          Throwable target = exc.getTargetException();
-          results.append(result.fail(target));
-          if (!silent) {
-            if (target instanceof AssertionError) System.out.print('F');
-            else System.out.print('E');
-          }
-        } catch (IllegalAccessException exc) {
-          results.append(result.fail(exc));
-          System.out.print('E');
-        }
+      Result result = this.newResult(test).at(i);
+      CompletableFuture<Result> outcome;
+
+      // an isolated test waits here for a free slot, so queued tests hold no
+      // thread; if the group or run runs out of time first, it's timed out
+      // w/o ever starting
+      if (isolated && !context.takeSlot(groupDeadline)) {
+        outcome = new CompletableFuture<Result>();
+        result.timeout(new TestTimeout());
+        this.finish(result, group, context, outcome);
+      } else {
+        outcome = this.schedule(
+          test, result, plan, context, group, groupDeadline, executor, isolated);
       }
+
+      // tests that share this instance must run one at a time
+      if (isolated) pending.add(outcome);
+      else if (outcome.join() != null) results.append(outcome.join());
     }
 
     // perform setup tasks before executing any tests
-    this.after();
+    if (!isolated && plan.hasAfter) this.hook(group, true, () -> this.after());
+
+    // collect any isolated results in the same order the tests were found
+    pending.forEach(outcome -> {
+      if (outcome.join() != null) results.append(outcome.join());
+    });
 
     return results;
   }
 
-  private DoublyLinkedList<Group> findChildren(Class<?>[] nested, Group parent) {
+  private CompletableFuture<Result> schedule(
+    TestPlan.PlannedTest test,
+    Result result,
+    TestPlan plan,
+    RunContext context,
+    Result group,
+    long groupDeadline,
+    Executor executor,
+    boolean isolated
+  ) {
+    CompletableFuture<Result> outcome = new CompletableFuture<Result>();
+
+    executor.execute(() -> {
+      // a cancelled run doesn't start any more tests, so they have no result
+      if (context.isCancelled()) {
+        if (isolated) context.freeSlot();
+        outcome.complete(null);
+        return;
+      }
+
+      // the time left is only known once the test is about to start
+      long budget = context.budget(this.findTimeout(test), groupDeadline);
+
+      if (budget <= 0) {
+        if (isolated) context.freeSlot();
+        result.timeout(new TestTimeout());
+        this.finish(result, group, context, outcome);
+        return;
+      }
+
+      context.testStarted(result, group);
+      Usage usage = Usage.start();
+
+      // if the test overruns, the watchdog records a timeout w/ a dump of
+      // where this thread was stuck, then interrupts & abandons it; whichever
+      // of the two settles the result first wins, & gives back the slot
+      Thread worker = Thread.currentThread();
+      AtomicBoolean settled = new AtomicBoolean();
+      AtomicBoolean abandoned = new AtomicBoolean();
+      ScheduledFuture<?> alarm = budget == RunContext.NONE
+        ? null
+        : Watchdog.watch(budget, () -> {
+          synchronized (outcome) {
+            if (settled.getAndSet(true)) return;
+
+            result.took(usage.wallNanos()).timeout(new TestTimeout(budget, worker));
+            abandoned.set(true);
+            worker.interrupt();
+          }
+
+          if (isolated) context.freeSlot();
+
+          this.finish(result, group, context, outcome);
+        });
+
+      Throwable failure;
+
+      try {
+        if (isolated) {
+          // each test gets a new instance of this group, so it has to run
+          // its own before() & after() as no state is shared w/ this one
+          Group instance = this.fresh();
+
+          if (plan.hasBefore) this.hook(result, false, () -> instance.before());
+          failure = instance.runTest(test, plan, result, abandoned);
+          if (plan.hasAfter && !abandoned.get()) this.hook(result, false, () -> instance.after());
+        } else {
+          failure = this.runTest(test, plan, result, abandoned);
+        }
+      } catch (Throwable exc) {
+        // setup, teardown, or creating the instance failed
+        failure = exc;
+      }
+
+      if (alarm != null) alarm.cancel(false);
+
+      synchronized (outcome) {
+        if (settled.getAndSet(true)) {
+          // the watchdog won, so clear the interrupt it sent so it can't
+          // leak into whatever this thread runs next
+          Thread.interrupted();
+          return;
+        }
+
+        // the test's own thread did all its work, hooks included
+        result
+          .took(usage.wallNanos())
+          .used(usage.cpuNanos(), usage.allocatedBytes(), 0);
+        if (failure == null) result.pass();
+        else result.fail(failure);
+      }
+
+      if (isolated) context.freeSlot();
+
+      this.finish(result, group, context, outcome);
+    });
+
+    return outcome;
+  }
+
+  // counts a settled result in its group & tells the listeners, before
+  // anyone waiting on the outcome can go on to finish the group
+  private void finish(
+    Result result,
+    Result group,
+    RunContext context,
+    CompletableFuture<Result> outcome
+  ) {
+    group.include(result);
+    context.testFinished(result, group);
+    outcome.complete(result);
+  }
+
+  // runs a before/after hook, adding the time it took to the given Result;
+  // a group's hooks also count towards its CPU & memory use, while a test's
+  // already count as part of the test
+  private void hook(Result result, boolean withUsage, Runnable hook) {
+    Usage usage = Usage.start();
+    hook.run();
+
+    result.used(
+      withUsage ? usage.cpuNanos() : 0,
+      withUsage ? usage.allocatedBytes() : 0,
+      usage.wallNanos());
+  }
+
+  // runs a single test, giving back why it failed or null if it passed; once
+  // the test has been abandoned for taking too long, its remaining hooks are
+  // skipped, as the next test may already be running on this instance
+  private Throwable runTest(
+    TestPlan.PlannedTest test,
+    TestPlan plan,
+    Result result,
+    AtomicBoolean abandoned
+  ) {
+    // the test method couldn't be resolved when the plan was built
+    if (test.invoker == null) return test.error;
+
+    try {
+      if (plan.hasBeforeEach) this.hook(result, false, () -> this.beforeEach());
+      // invoked directly, so a failure is thrown as itself instead of being
+      // wrapped in an InvocationTargetException
+      test.invoker.invokeExact(this);
+      if (plan.hasAfterEach && !abandoned.get()) this.hook(result, false, () -> this.afterEach());
+
+      return null;
+    } catch (Throwable exc) {
+      return exc;
+    }
+  }
+
+  private Result newResult(TestPlan.PlannedTest test) {
+    Result result = new Result(test.name);
+    String desc = (String)this.read(test.desc);
+
+    if (desc != null) {
+      result.describe(desc);
+    }
+
+    return result;
+  }
+
+  // builds a new instance of this group's class, the same way the instance
+  // was originally built; returns null if that isn't possible (e.g. for
+  // local classes that capture their enclosing scope)
+  Group fresh() {
+    MethodHandle constructor;
+
+    if (this.enclosing != null) {
+      TestPlan.PlannedGroup planned = TestPlan
+        .of(this.enclosing.getClass())
+        .child(this.getClass());
+      constructor = planned != null ? planned.constructor : null;
+    } else {
+      constructor = TestPlan.of(this.getClass()).create;
+    }
+
+    if (constructor == null) return null;
+
+    try {
+      return this.enclosing != null
+        ? (Group)constructor.invokeExact(this.enclosing)
+        : (Group)constructor.invokeExact();
+    } catch (Throwable exc) {
+      return null;
+    }
+  }
+
+  private DoublyLinkedList<Group> findChildren(TestPlan plan) {
     DoublyLinkedList<Group> children = new DoublyLinkedList<Group>();
 
-    for (Class<?> c : nested) {
-      if (Group.class.isAssignableFrom(c)) {
+    for (TestPlan.PlannedGroup child : plan.children) {
+      Throwable error = child.error;
+
+      if (error == null) {
         try {
-          Constructor<?> constructor = c.getDeclaredConstructor(parent.getClass());
-          Group group = (Group)constructor.newInstance(parent);
+          Group group = (Group)child.constructor.invokeExact(this);
+          group.enclosing = this;
           children.append(group);
-        } catch (IllegalAccessException exc) {
-          System.err.println("Error executing constructor on class: " + c);
-          System.err.println(exc);
-        } catch (InvocationTargetException exc) {
-          System.err.println("Error executing constructor on class: " + c);
-          System.err.println(exc);
-        } catch (InstantiationException exc) {
-          System.err.println("Error executing constructor on class: " + c);
-          System.err.println(exc);
-        } catch (NoSuchMethodException exc) {
-          System.err.println("Error executing constructor on class: " + c);
-          System.err.println(exc);
+        } catch (Throwable exc) {
+          error = exc;
         }
       }
+
+      if (error != null) {
+        System.err.println("Error executing constructor on class: " + child.type);
+        System.err.println(error);
+      }
     }
 
     return children;
   }
 
-  private String findDescName(String name, Class<? extends Group> instanceClass) {
-    int prefixLength = Group.testPrefix.length();
-    String withoutPrefix = name.substring(prefixLength);
+  // reads a field through a getter from the plan, null if there is none
+  private Object read(MethodHandle getter) {
+    if (getter == null) return null;
 
     try {
-      return (String)instanceClass
-        .getDeclaredField(Group.descPrefix + withoutPrefix)
-        .get(this);
-    } catch (IllegalAccessException exc) {
-      return null;
-    } catch (NoSuchFieldException exc) {
+      return (Object)getter.invokeExact(this);
+    } catch (Throwable exc) {
       return null;
     }
   }
+
+  private long findTimeout(TestPlan.PlannedTest test) {
+    Number timeout = (Number)this.read(test.timeout);
+
+    return timeout != null ? timeout.longValue() : 0;
+  }
+
+  private long findGroupTimeout(TestPlan plan, RunContext context) {
+    Number timeout = (Number)this.read(plan.timeout);
+
+    return timeout != null && timeout.longValue() > 0
+      ? timeout.longValue()
+      : context.groupTimeout;
+  }
+
+  // a group's Result is named after its class & described by its `desc`
+  Result newGroupResult() {
+    Result result = new Result(this.getClass().getName());
+    String desc = (String)this.read(TestPlan.of(this.getClass()).desc);
+
+    if (desc != null) {
+      result.describe(desc);
+    }
+
+    return result;
+  }
 }
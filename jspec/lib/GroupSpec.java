@@ -59,6 +59,43 @@ public class GroupSpec extends Group {
         assert false : exc.getMessage();
       }
     }
+
+    public String descOriginalException =
+      "A failed test reports the exception it threw, not one wrapped around it";
+    public void testOriginalException() throws NotATestResult {
+      class Throws extends Group {
+        public long timeoutTimedErrors = 5000;
+
+        public void testErrors() {
+          throw new IllegalStateException("broken");
+        }
+
+        public void testFails() {
+          assert false : "expected";
+        }
+
+        // run on a thread of the watchdog's, rather than the caller's
+        public void testTimedErrors() {
+          throw new UnsupportedOperationException("timed");
+        }
+      }
+
+      DoublyLinkedList<Result> results = new Throws().visit(true).getResults();
+      Throwable errors = results.get(0).getValue().getFailureExc();
+      Throwable fails = results.get(1).getValue().getFailureExc();
+      Throwable timed = results.get(2).getValue().getFailureExc();
+
+      assert errors.getClass() == IllegalStateException.class : errors.toString();
+      assert errors.getMessage().equals("broken") : errors.getMessage();
+      assert errors.getStackTrace()[0].getMethodName().equals("testErrors")
+        : "thrown from the test itself, not " + errors.getStackTrace()[0];
+
+      assert fails.getClass() == AssertionError.class : fails.toString();
+      assert fails.getMessage().equals("expected") : fails.getMessage();
+
+      assert timed.getClass() == UnsupportedOperationException.class : timed.toString();
+      assert timed.getMessage().equals("timed") : timed.getMessage();
+    }
   }
 
   public class Names extends Group {
@@ -444,4 +481,232 @@ public class GroupSpec extends Group {
       }
     }
   }
+
+  public class Isolation extends Group {
+    public String desc = "A Group's tests can be isolated from each other";
+
+    public String descFreshInstance = "Each isolated test is run on a fresh instance of its Group";
+    public void testFreshInstance() {
+      class Outer extends Group {
+        class Shared extends Group {
+          public int count = 0;
+
+          public void testOne() {
+            ++this.count;
+            assert this.count == 1 : "count should be 1, was " + this.count;
+          }
+
+          public void testTwo() {
+            ++this.count;
+            assert this.count == 1 : "count should be 1, was " + this.count;
+          }
+        }
+      }
+
+      // nested groups know how they were built, so they can be rebuilt
+      Outer.Shared shared = (Outer.Shared)new Outer()
+        .visit(true)
+        .getChildren()
+        .get(0)
+        .getValue();
+      RunContext context = new RunContext(true).isolate(2);
+      DoublyLinkedList<Result> results = shared.visit(context, new Result("Shared")).getResults();
+      context.close();
+
+      try {
+        assert results.getLength() == 2 : "both tests should have results";
+        assert results.get(0).getValue().didPass() : "first test should pass";
+        assert results.get(1).getValue().didPass() : "second test should pass";
+        assert shared.count == 0 : "original instance shouldn't be modified";
+      } catch (NotATestResult exc) {
+        assert false : exc.getMessage();
+      }
+    }
+
+    public String descFallsBackToShared = "A Group that can't be rebuilt runs its tests in order on the same instance";
+    public void testFallsBackToShared() {
+      class Local extends Group {
+        public int count = 0;
+
+        public void testOne() {
+          ++this.count;
+        }
+
+        public void testTwo() {
+          ++this.count;
+        }
+      }
+
+      Local local = new Local();
+      RunContext context = new RunContext(true).isolate(2);
+      local.visit(context, new Result("Local"));
+      context.close();
+
+      assert local.count == 2 : "count should be 2, was " + local.count;
+    }
+
+    // the tests run w/ a single slot, the first of which shrugs off the
+    // watchdog's interrupt & carries on for a good while
+    DoublyLinkedList<Result> spin(RunContext context) {
+      class Outer extends Group {
+        class Spinning extends Group {
+          public void testOne() {
+            long until = System.nanoTime() + 2_000_000_000L;
+            while (System.nanoTime() < until) {
+              Thread.interrupted();
+            }
+          }
+
+          public void testTwo() {}
+
+          public void testThree() {}
+        }
+      }
+
+      Group spinning = new Outer()
+        .visit(true)
+        .getChildren()
+        .get(0)
+        .getValue();
+      DoublyLinkedList<Result> results = spinning.visit(context.isolate(1), new Result("Spinning")).getResults();
+      context.close();
+
+      return results;
+    }
+
+    public String descAbandonedSlot = "An isolated test abandoned for overrunning frees its slot for the next";
+    public void testAbandonedSlot() {
+      long start = System.nanoTime();
+      DoublyLinkedList<Result> results = this.spin(new RunContext(true).timeouts(100, 0, 0));
+      long took = (System.nanoTime() - start) / 1_000_000;
+
+      try {
+        assert results.getLength() == 3 : "every test should have a result";
+        assert results.get(0).getValue().didTimeOut() : "first test should time out";
+        assert results.get(1).getValue().didPass() : "second test should still run";
+        assert results.get(2).getValue().didPass() : "third test should still run";
+        assert took < 1_500 : "shouldn't wait for the spinning test, took " + took + "ms";
+      } catch (NotATestResult exc) {
+        assert false : exc.getMessage();
+      }
+    }
+
+    public String descQueuedDeadline = "Isolated tests still queued when the run's time is up are timed out";
+    public void testQueuedDeadline() {
+      long start = System.nanoTime();
+      DoublyLinkedList<Result> results = this.spin(new RunContext(true).timeouts(0, 0, 200));
+      long took = (System.nanoTime() - start) / 1_000_000;
+
+      try {
+        assert results.getLength() == 3 : "every test should have a result";
+        for (int i = 0; i < 3; i++)
+          assert results.get(i).getValue().didTimeOut() : "test " + i + " should time out";
+        assert took < 1_500 : "shouldn't wait for the spinning test, took " + took + "ms";
+      } catch (NotATestResult exc) {
+        assert false : exc.getMessage();
+      }
+    }
+  }
+
+  public class Timeouts extends Group {
+    public String desc = "A Group's tests can be given time limits";
+
+    public String descTestTimeout = "A test that runs over its `timeout<Name>` is recorded as timed out";
+    public void testTestTimeout() {
+      class Slow extends Group {
+        public long timeoutHangs = 50;
+        public void testHangs() throws InterruptedException {
+          Thread.sleep(10_000);
+        }
+
+        public void testRuns() {
+          assert true;
+        }
+      }
+
+      DoublyLinkedList<Result> results = new Slow().visit(true).getResults();
+
+      try {
+        Result hangs = results.get(0).getValue().getCodeName().equals("testHangs")
+          ? results.get(0).getValue()
+          : results.get(1).getValue();
+        Result runs = hangs == results.get(0).getValue()
+          ? results.get(1).getValue()
+          : results.get(0).getValue();
+
+        assert hangs.didTimeOut() : "hung test should time out";
+        assert runs.didPass() : "the other test should still run & pass";
+
+        // the failure gives the stack of the stuck thread
+        boolean stuckInTest = false;
+        for (StackTraceElement frame : hangs.getFailureExc().getStackTrace()) {
+          stuckInTest = stuckInTest || frame.getMethodName().equals("testHangs");
+        }
+        assert stuckInTest : "timeout should show where the test was stuck";
+      } catch (NotATestResult exc) {
+        assert false : exc.getMessage();
+      }
+    }
+
+    public String descAbandonedHooks = "An abandoned test's thread doesn't go on to run afterEach on the group";
+    public void testAbandonedHooks() throws InterruptedException {
+      class Slow extends Group {
+        int afterEachs = 0;
+        public long timeoutHangs = 50;
+
+        public void afterEach() {
+          ++this.afterEachs;
+        }
+
+        // shrugs off the watchdog's interrupt & carries on a while
+        public void testHangs() {
+          long until = System.nanoTime() + 200_000_000L;
+          while (System.nanoTime() < until) {
+            try {
+              Thread.sleep(10);
+            } catch (InterruptedException exc) {
+              // ignored
+            }
+          }
+        }
+
+        public void testRuns() {}
+      }
+
+      Slow slow = new Slow();
+      slow.visit(true);
+      // long enough for the abandoned test to have finished
+      Thread.sleep(300);
+
+      assert slow.afterEachs == 1 : "afterEach ran " + slow.afterEachs + " times";
+    }
+
+    public String descGroupTimeout = "Tests still waiting when their Group's `timeout` runs out are timed out";
+    public void testGroupTimeout() {
+      class Slow extends Group {
+        public long timeout = 50;
+
+        public void testOne() throws InterruptedException {
+          Thread.sleep(30);
+        }
+
+        public void testTwo() throws InterruptedException {
+          Thread.sleep(30);
+        }
+
+        public void testThree() throws InterruptedException {
+          Thread.sleep(30);
+        }
+      }
+
+      DoublyLinkedList<Result> results = new Slow().visit(true).getResults();
+
+      try {
+        assert results.get(2).getValue().didTimeOut()
+          : "the last test should run out of time";
+      } catch (NotATestResult exc) {
+        assert false : exc.getMessage();
+      }
+    }
+  }
 }
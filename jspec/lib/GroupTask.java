@@ -0,0 +1,74 @@
+package jspec.lib;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import jspec.utils.list.DoublyLinkedList;
+
+class GroupTask extends RecursiveAction {
+  private Group group;
+  private Result result;
+  private Result parent;
+  private RunContext context;
+  private boolean fork;
+
+  GroupTask(
+    Group group,
+    Result result,
+    Result parent,
+    RunContext context,
+    boolean fork
+  ) {
+    this.group = group;
+    this.result = result;
+    this.parent = parent;
+    this.context = context;
+    this.fork = fork;
+  }
+
+  @Override
+  protected void compute() {
+    // a cancelled run doesn't start any more groups
+    if (this.context.isCancelled()) return;
+
+    long start = System.nanoTime();
+    this.context.listeners.groupStarted(this.result, this.parent);
+    // visit Group to execute tests & discover children
+    VisitResults visited = this.group.visit(this.context, this.result);
+    // then run each child group, placed after this group's own tests
+    GroupTask.runAll(
+      visited.getChildren(),
+      this.result,
+      TestPlan.of(this.group.getClass()).tests.size(),
+      this.context,
+      this.fork);
+    // a group's time includes all of its nested groups, & its parent's
+    // includes everything it used
+    this.result.took(System.nanoTime() - start);
+    this.parent.include(this.result);
+    this.context.listeners.groupFinished(this.result);
+  }
+
+  static void runAll(
+    DoublyLinkedList<Group> groups,
+    Result parent,
+    int offset,
+    RunContext context,
+    boolean fork
+  ) {
+    ArrayList<GroupTask> tasks = new ArrayList<GroupTask>();
+    groups.forEach((grp, idx) -> {
+      Group group = grp.getValue();
+      // each group's Result knows its place among its siblings, so the
+      // results come out the same as a serial run whatever order they finish
+      Result result = group.newGroupResult().at(offset + idx);
+      tasks.add(new GroupTask(group, result, parent, context, fork));
+    });
+
+    // when forking, hand every task to the pool at once so idle workers can
+    // steal them; this must only be done from inside a ForkJoinPool
+    if (fork) ForkJoinTask.invokeAll(tasks);
+    else tasks.forEach(task -> task.compute());
+  }
+}
@@ -0,0 +1,193 @@
+package jspec.lib;
+
+import java.io.Writer;
+import java.net.InetAddress;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+// Writes results as JUnit style XML for CI servers, one <testcase> at a time
+// as each test finishes, so nothing is held on to however big the suite. The
+// output is flushed every so many test cases, on the watchdog's timer while
+// there's anything left unflushed, & at the end of the run.
+//
+// As nothing is known about the run until it's over, the counts & total time
+// that usually go on <testsuite> are left out; CI servers count the test
+// cases themselves. Every test is in the one suite, w/ the class of the group
+// it's in as its `classname`.
+public class JUnitXmlReporter implements RunListener {
+  static int batch = 64;
+  static long intervalMillis = 200;
+
+  private Writer out;
+  private XMLStreamWriter xml;
+  private XMLStreamException error;
+  private int unflushed = 0;
+  private ScheduledFuture<?> flusher;
+
+  public JUnitXmlReporter(Writer out) {
+    this.out = out;
+  }
+
+  // the first error writing the XML, if there was one; nothing more is
+  // written after it
+  public XMLStreamException getError() {
+    return this.error;
+  }
+
+  @Override
+  public void runStarted() {
+    this.flusher = Watchdog.scheduler.scheduleWithFixedDelay(
+      () -> this.write(() -> {
+        if (this.unflushed > 0) this.flush();
+      }),
+      JUnitXmlReporter.intervalMillis,
+      JUnitXmlReporter.intervalMillis,
+      TimeUnit.MILLISECONDS);
+
+    this.write(() -> {
+      this.xml = XMLOutputFactory.newInstance().createXMLStreamWriter(this.out);
+      this.xml.writeStartDocument("UTF-8", "1.0");
+      this.xml.writeCharacters("\n");
+      this.xml.writeStartElement("testsuites");
+      this.xml.writeCharacters("\n");
+      this.xml.writeStartElement("testsuite");
+      this.xml.writeAttribute("name", "jspec");
+      this.xml.writeAttribute("timestamp", Instant.now().toString());
+      this.xml.writeAttribute("hostname", JUnitXmlReporter.hostname());
+      this.xml.writeCharacters("\n");
+    });
+  }
+
+  @Override
+  public void testPassed(Result test, Result group) {
+    this.write(() -> {
+      this.startTestCase(test, group, true);
+    });
+  }
+
+  @Override
+  public void testFailed(Result test, Result group) {
+    this.write(() -> {
+      this.startTestCase(test, group, false);
+
+      Throwable exc = ResultsArchive.failure(test);
+      // failed assertions are failures, anything else that was thrown,
+      // including running out of time, is an error
+      String kind = exc instanceof AssertionError ? "failure" : "error";
+
+      this.xml.writeCharacters("\n    ");
+      this.xml.writeStartElement(kind);
+      if (exc.getMessage() != null)
+        this.xml.writeAttribute("message", JUnitXmlReporter.clean(exc.getMessage()));
+      this.xml.writeAttribute("type", exc.getClass().getName());
+      // trimmed to the same frames as the run's own failure report
+      this.xml.writeCharacters(JUnitXmlReporter.clean(new FailureReport.Trace(test).stack()));
+      this.xml.writeEndElement();
+      this.xml.writeCharacters("\n  ");
+      this.xml.writeEndElement();
+      this.xml.writeCharacters("\n");
+      this.ended();
+    });
+  }
+
+  @Override
+  public void runFinished() {
+    if (this.flusher != null) this.flusher.cancel(false);
+
+    this.write(() -> {
+      this.xml.writeEndElement();
+      this.xml.writeCharacters("\n");
+      this.xml.writeEndElement();
+      this.xml.writeCharacters("\n");
+      this.xml.writeEndDocument();
+      this.flush();
+    });
+  }
+
+  // a passing test is written as an empty element, a failing one is left
+  // open for its failure to go inside
+  private void startTestCase(Result test, Result group, boolean passed)
+    throws XMLStreamException
+  {
+    this.xml.writeCharacters("  ");
+    if (passed) this.xml.writeEmptyElement("testcase");
+    else this.xml.writeStartElement("testcase");
+
+    this.xml.writeAttribute("name", JUnitXmlReporter.clean(test.getName()));
+    this.xml.writeAttribute("classname", JUnitXmlReporter.clean(group.getCodeName()));
+    this.xml.writeAttribute(
+      "time",
+      String.format(Locale.ROOT, "%.3f", test.getNanos() / 1_000_000_000.0));
+
+    if (passed) {
+      this.xml.writeCharacters("\n");
+      this.ended();
+    }
+  }
+
+  // a test case has been written in full, flushing once enough have passed
+  private void ended() throws XMLStreamException {
+    if (++this.unflushed >= JUnitXmlReporter.batch) this.flush();
+  }
+
+  private void flush() throws XMLStreamException {
+    this.xml.flush();
+    this.unflushed = 0;
+  }
+
+  interface Write {
+    void write() throws XMLStreamException;
+  }
+
+  // the flusher writes from the watchdog's thread, apart from the results
+  private synchronized void write(Write write) {
+    if (this.error != null) return;
+
+    try {
+      write.write();
+    } catch (XMLStreamException exc) {
+      this.error = exc;
+    }
+  }
+
+  // drops characters that can't appear anywhere in an XML document, e.g. a
+  // stray control character in a failure message, or half of a surrogate pair
+  static String clean(String text) {
+    StringBuilder out = null;
+
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      boolean allowed = c == '\t' || c == '\n' || c == '\r'
+        || (c >= 0x20 && c <= 0xD7FF)
+        || (c >= 0xE000 && c <= 0xFFFD);
+      // a whole pair is kept as one character
+      boolean pair = Character.isHighSurrogate(c)
+        && i + 1 < text.length()
+        && Character.isLowSurrogate(text.charAt(i + 1));
+
+      if (allowed) {
+        if (out != null) out.append(c);
+      } else if (pair) {
+        if (out != null) out.append(c).append(text.charAt(i + 1));
+        i++;
+      } else if (out == null) {
+        out = new StringBuilder(text.substring(0, i));
+      }
+    }
+
+    return out == null ? text : out.toString();
+  }
+
+  private static String hostname() {
+    try {
+      return InetAddress.getLocalHost().getHostName();
+    } catch (java.io.IOException exc) {
+      return "localhost";
+    }
+  }
+}
@@ -0,0 +1,131 @@
+package jspec.lib;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+public class JUnitXmlReporterSpec extends Group {
+  public String desc = "class: lib.JUnitXmlReporter";
+
+  public static void main(String[] args) {
+    JUnitXmlReporterSpec spec = new JUnitXmlReporterSpec();
+    new Runner(spec)
+      .run(false)
+      .resultStrings()
+      .forEach((node, i) -> System.out.println(node.getValue()));
+  }
+
+  Document report;
+
+  public void before() {
+    class G1 extends Group {
+      public String descPasses = "passes & <escapes>";
+      public void testPasses() {}
+
+      public void testFails() {
+        assert false : "expected";
+      }
+
+      class G2 extends Group {
+        public void testErrors() {
+          throw new IllegalStateException("broken\u0001");
+        }
+      }
+    }
+
+    StringWriter out = new StringWriter();
+    new Runner()
+      .addGroup(new G1())
+      .addListener(new JUnitXmlReporter(out))
+      .keepResults(false)
+      .run(true);
+
+    try {
+      this.report = DocumentBuilderFactory
+        .newInstance()
+        .newDocumentBuilder()
+        .parse(new ByteArrayInputStream(out.toString().getBytes(StandardCharsets.UTF_8)));
+    } catch (Exception exc) {
+      this.report = null;
+    }
+  }
+
+  Element findTestCase(String name) {
+    NodeList cases = this.report.getElementsByTagName("testcase");
+
+    for (int i = 0; i < cases.getLength(); i++) {
+      Element element = (Element)cases.item(i);
+      if (element.getAttribute("name").equals(name)) return element;
+    }
+
+    return null;
+  }
+
+  public String descWellFormed = "Writes a well formed JUnit report w/ every test in it";
+  public void testWellFormed() {
+    assert this.report != null : "the report should parse";
+    assert this.report.getDocumentElement().getTagName().equals("testsuites");
+    assert this.report.getElementsByTagName("testsuite").getLength() == 1;
+    assert this.report.getElementsByTagName("testcase").getLength() == 3;
+  }
+
+  public String descTestCases = "Each test case has its name, group class & time";
+  public void testTestCases() {
+    Element passes = this.findTestCase("passes & <escapes>");
+
+    assert passes != null : "the test's description should be its name";
+    assert passes.getAttribute("classname").contains("G1");
+    assert passes.getAttribute("time").matches("\\d+\\.\\d{3}");
+    assert passes.getChildNodes().getLength() == 0 : "a passing test has nothing in it";
+  }
+
+  public String descFailures = "Failed assertions are failures & anything else is an error";
+  public void testFailures() {
+    Element fails = (Element)this.findTestCase("testFails")
+      .getElementsByTagName("failure").item(0);
+    Element errors = (Element)this.findTestCase("testErrors")
+      .getElementsByTagName("error").item(0);
+
+    assert fails != null : "a failed assertion should be a failure";
+    assert fails.getAttribute("message").equals("expected");
+    assert fails.getTextContent().contains("\tat ") : "the stack trace should be included";
+    assert !fails.getTextContent().contains("jspec.lib.Group.")
+      : "the runner's frames should be trimmed, as in the failure report";
+    assert fails.getTextContent().contains(" more\n") : "trimmed frames should be counted";
+    assert errors != null : "an exception should be an error";
+    assert errors.getAttribute("type").equals("java.lang.IllegalStateException");
+    assert errors.getAttribute("message").equals("broken")
+      : "characters XML can't hold should be dropped";
+  }
+
+  public String descSurrogates = "Keeps whole surrogate pairs but drops a lone half of one";
+  public void testSurrogates() {
+    String pair = "\uD83D\uDE00";
+
+    assert JUnitXmlReporter.clean("a" + pair + "b").equals("a" + pair + "b");
+    assert JUnitXmlReporter.clean("a\uD83Db").equals("ab") : "a lone high surrogate";
+    assert JUnitXmlReporter.clean("a\uDE00b").equals("ab") : "a lone low surrogate";
+    assert JUnitXmlReporter.clean("\u0001" + pair + "\uD83D").equals(pair) : "once others are dropped";
+  }
+
+  public String descFlushes = "Flushes test cases every so often, not each one as it's written";
+  public void testFlushes() throws InterruptedException {
+    StringWriter out = new StringWriter();
+    JUnitXmlReporter reporter = new JUnitXmlReporter(new BufferedWriter(out));
+
+    reporter.runStarted();
+    reporter.testPassed(new Result("testPasses").pass(), new Result("G1"));
+    assert !out.toString().contains("<testcase") : "the test case should wait to be flushed";
+
+    Thread.sleep(JUnitXmlReporter.intervalMillis * 3);
+    assert out.toString().contains("<testcase") : out;
+
+    reporter.runFinished();
+    assert out.toString().endsWith("</testsuites>\n") : out;
+  }
+}
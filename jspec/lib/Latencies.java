@@ -0,0 +1,147 @@
+package jspec.lib;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.PriorityQueue;
+
+import jspec.utils.Histogram;
+import jspec.utils.Node;
+import jspec.utils.list.DoublyLinkedList;
+
+// Keeps the slowest tests & groups of a run as it happens, w/ a histogram of
+// the times of the tests in each group, so it's clear which specs to speed up
+// first. Only the slowest few are held on to, however big the suite.
+class Latencies implements RunListener {
+  private int limit;
+  // groups started but not finished, w/ the times of the tests in them so far
+  // & the group they're in
+  private IdentityHashMap<Result, Histogram> open = new IdentityHashMap<Result, Histogram>();
+  private IdentityHashMap<Result, Result> parents = new IdentityHashMap<Result, Result>();
+  // fastest first, so it's the one dropped when there are too many
+  private PriorityQueue<Slow> tests = new PriorityQueue<Slow>();
+  private PriorityQueue<Slow> groups = new PriorityQueue<Slow>();
+
+  Latencies(int limit) {
+    this.limit = limit;
+  }
+
+  // the same, for results that have already happened, e.g. a merged run
+  static Latencies of(ResultsTree tree, int limit) {
+    Latencies latencies = new Latencies(limit);
+    latencies.replay(tree.getRoot());
+
+    return latencies;
+  }
+
+  private void replay(Node<Result> parent) {
+    for (Node<Result> node = parent.getHeadChild(); node != null; node = node.getNextSibling()) {
+      Result result = node.getValue();
+
+      if (result.isTest()) {
+        this.testPassed(result, parent.getValue());
+      } else {
+        this.groupStarted(result, parent.getValue());
+        this.replay(node);
+        this.groupFinished(result);
+      }
+    }
+  }
+
+  @Override
+  public void groupStarted(Result group, Result parent) {
+    this.open.put(group, new Histogram());
+    this.parents.put(group, parent);
+  }
+
+  @Override
+  public void testPassed(Result test, Result group) {
+    this.testFinished(test, group);
+  }
+
+  @Override
+  public void testFailed(Result test, Result group) {
+    this.testFinished(test, group);
+  }
+
+  private void testFinished(Result test, Result group) {
+    Histogram histogram = this.open.get(group);
+    if (histogram != null) histogram.record(test.getNanos());
+
+    this.keep(this.tests, new Slow(test, group, null));
+  }
+
+  @Override
+  public void groupFinished(Result group) {
+    Histogram histogram = this.open.remove(group);
+    if (histogram == null) return;
+
+    // a group's tests count towards every group it's nested in
+    Histogram parent = this.open.get(this.parents.remove(group));
+    if (parent != null) parent.add(histogram);
+
+    this.keep(this.groups, new Slow(group, null, histogram));
+  }
+
+  private void keep(PriorityQueue<Slow> slowest, Slow result) {
+    slowest.add(result);
+    if (slowest.size() > this.limit) slowest.poll();
+  }
+
+  DoublyLinkedList<String> strings(String indent) {
+    DoublyLinkedList<String> out = new DoublyLinkedList<String>()
+      .append("")
+      .append("=".repeat(80))
+      .append("")
+      .append("Slowest tests:")
+      .append("");
+
+    for (Slow test : Latencies.slowestFirst(this.tests)) {
+      out.append(indent + Result.millis(test.result.getNanos()) + "  "
+        + test.result.getName() + " (" + test.group.getName() + ")");
+    }
+
+    out
+      .append("")
+      .append("Slowest groups, w/ the time taken by the tests in them:")
+      .append("");
+
+    for (Slow group : Latencies.slowestFirst(this.groups)) {
+      Histogram h = group.histogram;
+
+      out.append(indent + Result.millis(group.result.getNanos()) + "  "
+        + group.result.getName() + " (" + h.getCount() + " test"
+        + (h.getCount() == 1 ? "" : "s")
+        + ": p50 " + Result.millis(h.percentile(50))
+        + ", p90 " + Result.millis(h.percentile(90))
+        + ", p99 " + Result.millis(h.percentile(99))
+        + ", max " + Result.millis(h.getMax()) + ")");
+    }
+
+    return out;
+  }
+
+  private static ArrayList<Slow> slowestFirst(PriorityQueue<Slow> slowest) {
+    ArrayList<Slow> sorted = new ArrayList<Slow>(slowest);
+    sorted.sort((a, b) -> b.compareTo(a));
+
+    return sorted;
+  }
+
+  // a test w/ the group it's in, or a group w/ the times of its tests
+  static class Slow implements Comparable<Slow> {
+    Result result;
+    Result group;
+    Histogram histogram;
+
+    Slow(Result result, Result group, Histogram histogram) {
+      this.result = result;
+      this.group = group;
+      this.histogram = histogram;
+    }
+
+    @Override
+    public int compareTo(Slow other) {
+      return Long.compare(this.result.getNanos(), other.result.getNanos());
+    }
+  }
+}
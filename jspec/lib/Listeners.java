@@ -0,0 +1,64 @@
+package jspec.lib;
+
+import java.util.ArrayList;
+
+// Hands each event on to every added listener, one event at a time so
+// listeners don't have to be thread safe themselves.
+class Listeners implements RunListener {
+  private ArrayList<RunListener> listeners;
+
+  Listeners() {
+    this.listeners = new ArrayList<RunListener>();
+  }
+
+  synchronized Listeners add(RunListener listener) {
+    this.listeners.add(listener);
+
+    return this;
+  }
+
+  @Override
+  public synchronized void runStarted() {
+    this.listeners.forEach(l -> l.runStarted());
+  }
+
+  @Override
+  public synchronized void groupStarted(Result group, Result parent) {
+    this.listeners.forEach(l -> l.groupStarted(group, parent));
+  }
+
+  @Override
+  public synchronized void testStarted(Result test, Result group) {
+    this.listeners.forEach(l -> l.testStarted(test, group));
+  }
+
+  @Override
+  public synchronized void testPassed(Result test, Result group) {
+    this.listeners.forEach(l -> l.testPassed(test, group));
+  }
+
+  @Override
+  public synchronized void testFailed(Result test, Result group) {
+    this.listeners.forEach(l -> l.testFailed(test, group));
+  }
+
+  @Override
+  public synchronized void groupFinished(Result group) {
+    this.listeners.forEach(l -> l.groupFinished(group));
+  }
+
+  @Override
+  public synchronized void runFinished() {
+    this.listeners.forEach(l -> l.runFinished());
+  }
+
+  // a finished test is reported as passed or failed based on its Result
+  void testFinished(Result test, Result group) {
+    try {
+      if (test.didPass()) this.testPassed(test, group);
+      else this.testFailed(test, group);
+    } catch (NotATestResult exc) {
+      // only test results are ever finished
+    }
+  }
+}
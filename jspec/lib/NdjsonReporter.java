@@ -0,0 +1,248 @@
+package jspec.lib;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Instant;
+import java.util.IdentityHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// Writes the run as newline delimited JSON, one event per line as it
+// happens, so log pipelines & dashboards can follow a run live:
+//
+//   {"event":"runStarted","time":"2022-04-01T12:00:00Z"}
+//   {"event":"groupStarted","id":1,"parent":0,"group":"MathSpec","name":"..."}
+//   {"event":"testFinished","group":1,"test":"testAdds","name":"...","status":"passed",
+//    "nanos":1200,"cpuNanos":1000,"allocatedBytes":64,"hookNanos":0}
+//   {"event":"groupFinished","id":1,"nanos":5400,...}
+//   {"event":"runFinished","tests":1,"passed":1,"failed":0,"errored":0,
+//    "timedOut":0,"nanos":6000}
+//
+// Groups are numbered as they start, w/ the root of the run as 0, & a failed
+// test has a "failure" w/ its "type" & "message". Each event is written
+// straight to the output, which is flushed every so many events, on the
+// watchdog's timer every so often while there's anything left unflushed, so a
+// quiet run's last events aren't held back, & at the end of the run.
+public class NdjsonReporter implements RunListener {
+  static int batch = 64;
+  static long intervalMillis = 200;
+
+  private Writer out;
+  private IOException error;
+  private IdentityHashMap<Result, Integer> groups = new IdentityHashMap<Result, Integer>();
+  private int lastGroup = 0;
+  // whether the next field is the first in its object
+  private boolean first;
+  private int unflushed = 0;
+  private ScheduledFuture<?> flusher;
+  private long started;
+  private int tests, passed, failed, errored, timedOut;
+
+  public NdjsonReporter(Writer out) {
+    this.out = out;
+  }
+
+  // the first error writing the events, if there was one; nothing more is
+  // written after it
+  public IOException getError() {
+    return this.error;
+  }
+
+  @Override
+  public void runStarted() {
+    this.started = System.nanoTime();
+    this.flusher = Watchdog.scheduler.scheduleWithFixedDelay(
+      () -> this.write(() -> {
+        if (this.unflushed > 0) this.flush();
+      }),
+      NdjsonReporter.intervalMillis,
+      NdjsonReporter.intervalMillis,
+      TimeUnit.MILLISECONDS);
+
+    this.write(() -> {
+      this.start("runStarted");
+      this.field("time", Instant.now().toString());
+      this.end();
+    });
+  }
+
+  @Override
+  public void groupStarted(Result group, Result parent) {
+    int id = ++this.lastGroup;
+    this.groups.put(group, id);
+
+    this.write(() -> {
+      this.start("groupStarted");
+      this.field("id", id);
+      // any parent that isn't a known group is the root of the run
+      this.field("parent", this.groups.getOrDefault(parent, 0));
+      this.field("group", group.getCodeName());
+      this.field("name", group.getName());
+      this.end();
+    });
+  }
+
+  @Override
+  public void testPassed(Result test, Result group) {
+    this.testFinished(test, group);
+  }
+
+  @Override
+  public void testFailed(Result test, Result group) {
+    this.testFinished(test, group);
+  }
+
+  private void testFinished(Result test, Result group) {
+    String status = NdjsonReporter.status(test);
+
+    ++this.tests;
+    switch (status) {
+      case "passed": ++this.passed; break;
+      case "failed": ++this.failed; break;
+      case "errored": ++this.errored; break;
+      default: ++this.timedOut;
+    }
+
+    this.write(() -> {
+      this.start("testFinished");
+      this.field("group", this.groups.getOrDefault(group, 0));
+      this.field("test", test.getCodeName());
+      this.field("name", test.getName());
+      this.field("status", status);
+      this.usage(test);
+
+      Throwable exc = ResultsArchive.failure(test);
+      if (exc != null) {
+        this.key("failure");
+        this.out.write('{');
+        this.first = true;
+        this.field("type", exc.getClass().getName());
+        this.field("message", exc.getMessage());
+        this.out.write('}');
+      }
+
+      this.end();
+    });
+  }
+
+  @Override
+  public void groupFinished(Result group) {
+    Integer id = this.groups.remove(group);
+    if (id == null) return;
+
+    this.write(() -> {
+      this.start("groupFinished");
+      this.field("id", id);
+      this.usage(group);
+      this.end();
+    });
+  }
+
+  @Override
+  public void runFinished() {
+    if (this.flusher != null) this.flusher.cancel(false);
+
+    this.write(() -> {
+      this.start("runFinished");
+      this.field("tests", this.tests);
+      this.field("passed", this.passed);
+      this.field("failed", this.failed);
+      this.field("errored", this.errored);
+      this.field("timedOut", this.timedOut);
+      this.field("nanos", System.nanoTime() - this.started);
+      this.end();
+      this.flush();
+    });
+  }
+
+  static String status(Result test) {
+    switch (test.progressChar()) {
+      case '.': return "passed";
+      case 'F': return "failed";
+      case 'E': return "errored";
+      default: return "timedOut";
+    }
+  }
+
+  private void usage(Result result) throws IOException {
+    this.field("nanos", result.getNanos());
+    this.field("cpuNanos", result.getCpuNanos());
+    this.field("allocatedBytes", result.getAllocatedBytes());
+    this.field("hookNanos", result.getHookNanos());
+  }
+
+  private void start(String event) throws IOException {
+    this.out.write('{');
+    this.first = true;
+    this.field("event", event);
+  }
+
+  // ends the event's line, flushing once enough events have passed
+  private void end() throws IOException {
+    this.out.write("}\n");
+
+    if (++this.unflushed >= NdjsonReporter.batch) this.flush();
+  }
+
+  private void flush() throws IOException {
+    this.out.flush();
+    this.unflushed = 0;
+  }
+
+  private void key(String name) throws IOException {
+    if (!this.first) this.out.write(',');
+    this.first = false;
+
+    this.string(name);
+    this.out.write(':');
+  }
+
+  private void field(String name, long value) throws IOException {
+    this.key(name);
+    this.out.write(Long.toString(value));
+  }
+
+  private void field(String name, String value) throws IOException {
+    this.key(name);
+
+    if (value == null) this.out.write("null");
+    else this.string(value);
+  }
+
+  // quoted, escaping anything JSON doesn't allow as is
+  private void string(String value) throws IOException {
+    this.out.write('"');
+
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+
+      switch (c) {
+        case '"': this.out.write("\\\""); break;
+        case '\\': this.out.write("\\\\"); break;
+        case '\n': this.out.write("\\n"); break;
+        case '\r': this.out.write("\\r"); break;
+        case '\t': this.out.write("\\t"); break;
+        default:
+          if (c < 0x20) this.out.write(String.format("\\u%04x", (int) c));
+          else this.out.write(c);
+      }
+    }
+
+    this.out.write('"');
+  }
+
+  interface Write {
+    void write() throws IOException;
+  }
+
+  // the flusher writes from the watchdog's thread, apart from the events
+  private synchronized void write(Write write) {
+    if (this.error != null) return;
+
+    try {
+      write.write();
+    } catch (IOException exc) {
+      this.error = exc;
+    }
+  }
+}
@@ -0,0 +1,110 @@
+package jspec.lib;
+
+import java.io.BufferedWriter;
+import java.io.StringWriter;
+
+public class NdjsonReporterSpec extends Group {
+  public String desc = "class: lib.NdjsonReporter";
+
+  public static void main(String[] args) {
+    NdjsonReporterSpec spec = new NdjsonReporterSpec();
+    new Runner(spec)
+      .run(false)
+      .resultStrings()
+      .forEach((node, i) -> System.out.println(node.getValue()));
+  }
+
+  String[] events;
+
+  public void before() {
+    class G1 extends Group {
+      public String descPasses = "passes & \"quotes\"";
+      public void testPasses() {}
+
+      public void testFails() {
+        assert false : "expected\non two lines";
+      }
+
+      class G2 extends Group {
+        public void testErrors() {
+          throw new IllegalStateException("broken\u0001");
+        }
+      }
+    }
+
+    StringWriter out = new StringWriter();
+    new Runner()
+      .addGroup(new G1())
+      .addListener(new NdjsonReporter(out))
+      .keepResults(false)
+      .run(true);
+
+    this.events = out.toString().split("\n", -1);
+  }
+
+  String findEvent(String needle) {
+    for (String event : this.events) {
+      if (event.contains(needle)) return event;
+    }
+
+    return null;
+  }
+
+  public String descOnePerLine = "Writes one event per line, from the run starting to its summary";
+  public void testOnePerLine() {
+    // 2 for the run, 2 for each of the groups & 1 for each test, then the
+    // empty string after the last line break
+    assert this.events.length == 10 : this.events.length + " lines";
+    assert this.events[0].startsWith("{\"event\":\"runStarted\"") : this.events[0];
+    assert this.events[8].startsWith("{\"event\":\"runFinished\"") : this.events[8];
+    assert this.events[9].isEmpty();
+
+    for (int i = 0; i < 9; i++) {
+      assert this.events[i].startsWith("{") && this.events[i].endsWith("}") : this.events[i];
+    }
+  }
+
+  public String descTests = "Each test gives its group, status, timings & any failure";
+  public void testTests() {
+    String passes = this.findEvent("\"test\":\"testPasses\"");
+    String fails = this.findEvent("\"test\":\"testFails\"");
+    String errors = this.findEvent("\"test\":\"testErrors\"");
+
+    assert passes.contains("\"group\":1,") : passes;
+    assert passes.contains("\"name\":\"passes & \\\"quotes\\\"\"") : passes;
+    assert passes.contains("\"status\":\"passed\"") : passes;
+    assert passes.contains("\"nanos\":") && passes.contains("\"allocatedBytes\":") : passes;
+    assert !passes.contains("\"failure\"") : passes;
+
+    assert fails.contains("\"status\":\"failed\"") : fails;
+    assert fails.contains("\"failure\":{\"type\":\"java.lang.AssertionError\",\"message\":\"expected\\non two lines\"}")
+      : fails;
+
+    assert errors.contains("\"group\":2,") : errors;
+    assert errors.contains("\"status\":\"errored\"") : errors;
+    assert errors.contains("broken\\u0001") : errors;
+  }
+
+  public String descSummary = "Ends w/ a count of the tests by status";
+  public void testSummary() {
+    String summary = this.events[8];
+
+    assert summary.contains("\"tests\":3,\"passed\":1,\"failed\":1,\"errored\":1,\"timedOut\":0")
+      : summary;
+  }
+
+  public String descFlushes = "Flushes what's been written every so often, even when no more events come";
+  public void testFlushes() throws InterruptedException {
+    StringWriter out = new StringWriter();
+    NdjsonReporter reporter = new NdjsonReporter(new BufferedWriter(out));
+
+    reporter.runStarted();
+    assert out.toString().isEmpty() : "the first event should wait to be flushed";
+
+    Thread.sleep(NdjsonReporter.intervalMillis * 3);
+    assert out.toString().startsWith("{\"event\":\"runStarted\"") : out;
+
+    reporter.runFinished();
+    assert out.toString().contains("\"event\":\"runFinished\"") : out;
+  }
+}
@@ -0,0 +1,14 @@
+package jspec.lib;
+
+// Prints a character for each finished test as a progress indicator
+class ProgressListener implements RunListener {
+  @Override
+  public void testPassed(Result test, Result group) {
+    System.out.print(test.progressChar());
+  }
+
+  @Override
+  public void testFailed(Result test, Result group) {
+    System.out.print(test.progressChar());
+  }
+}
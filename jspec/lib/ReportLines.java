@@ -0,0 +1,8 @@
+package jspec.lib;
+
+import java.io.IOException;
+
+// Where a report's lines go, one at a time.
+interface ReportLines {
+  void write(String line) throws IOException;
+}
@@ -1,20 +1,92 @@
 package jspec.lib;
 
+import java.io.IOException;
+import java.util.ArrayList;
+
 import jspec.utils.list.DoublyLinkedList;
 
 public class Result {
   private String codeName;
   private String descName;
   private boolean testResult;
+  // position among the other results in the same group
+  private int ordinal;
+  // wall clock time taken, in nanoseconds
+  private long nanos;
+  // CPU time & memory used by the threads running it, & the time spent in
+  // before/after hooks; a group's include everything in it
+  private long cpuNanos;
+  private long allocatedBytes;
+  private long hookNanos;
 
   private boolean pass;
+  private boolean timedOut;
   private Throwable exc;
+  // a group's tests, nested groups' included, counted as they're added to
+  // its ResultsTree
+  private volatile RunSummary summary = RunSummary.empty;
 
   Result(String codeName) {
     this.codeName = codeName;
     this.testResult = false;
   }
 
+  Result at(int ordinal) {
+    this.ordinal = ordinal;
+
+    return this;
+  }
+
+  public int getOrdinal() {
+    return this.ordinal;
+  }
+
+  Result took(long nanos) {
+    this.nanos = nanos;
+
+    return this;
+  }
+
+  public long getNanos() {
+    return this.nanos;
+  }
+
+  synchronized Result used(long cpuNanos, long allocatedBytes, long hookNanos) {
+    this.cpuNanos += cpuNanos;
+    this.allocatedBytes += allocatedBytes;
+    this.hookNanos += hookNanos;
+
+    return this;
+  }
+
+  // adds what a test or nested group used to this group's totals
+  Result include(Result other) {
+    return this.used(other.getCpuNanos(), other.getAllocatedBytes(), other.getHookNanos());
+  }
+
+  public synchronized long getCpuNanos() {
+    return this.cpuNanos;
+  }
+
+  public synchronized long getAllocatedBytes() {
+    return this.allocatedBytes;
+  }
+
+  public synchronized long getHookNanos() {
+    return this.hookNanos;
+  }
+
+  // a test's summary is just itself
+  public RunSummary getSummary() {
+    if (this.isTest()) return RunSummary.empty.with(this);
+
+    return this.summary;
+  }
+
+  void count(Result test) {
+    this.summary = this.summary.with(test);
+  }
+
   public Result describe(String description) {
     this.descName = description;
 
@@ -36,6 +108,13 @@ public class Result {
     return this;
   }
 
+  public Result timeout(TestTimeout exc) {
+    this.fail(exc);
+    this.timedOut = true;
+
+    return this;
+  }
+
   public String getName() {
     if (this.descName != null && this.descName != "")
       return this.descName;
@@ -60,6 +139,12 @@ public class Result {
     throw new NotATestResult(this.codeName, "didPass");
   }
 
+  public boolean didTimeOut() throws NotATestResult {
+    if (this.isTest()) return this.timedOut;
+
+    throw new NotATestResult(this.codeName, "didTimeOut");
+  }
+
   public Throwable getFailureExc() throws NotATestResult {
     if (this.isTest()) return this.exc;
 
@@ -78,7 +163,7 @@ public class Result {
       // symbol to indicate if test passed or failed
       String symb = this.didPass()
         ? "✅"
-        : "❌";
+        : this.timedOut ? "⏰" : "❌";
 
       // prepend prefix & append text with symbol
       return prefix + text + " " + symb;
@@ -88,27 +173,47 @@ public class Result {
     }
   }
 
-  public DoublyLinkedList<String> failureStrings() throws NotATestResult {
+  public String timingString() {
+    return Result.millis(this.nanos) + " wall, "
+      + Result.millis(this.getCpuNanos()) + " CPU, "
+      + Result.bytes(this.getAllocatedBytes()) + " allocated, "
+      + Result.millis(this.getHookNanos()) + " in hooks";
+  }
+
+  static String millis(long nanos) {
+    return String.format("%.1f ms", nanos / 1_000_000.0);
+  }
+
+  static String bytes(long bytes) {
+    if (bytes < 1024) return bytes + " B";
+    if (bytes < 1024 * 1024) return String.format("%.1f KB", bytes / 1024.0);
+
+    return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+  }
 
+  char progressChar() {
+    if (!this.isTest() || this.pass) return '.';
+    if (this.timedOut) return 'T';
+    if (this.exc instanceof AssertionError) return 'F';
+
+    return 'E';
+  }
+
+  // the failure w/ its stack trace trimmed to the test's own frames, see
+  // FailureReport
+  public DoublyLinkedList<String> failureStrings() throws NotATestResult {
     if (this.isTest()) {
-      // create new list
-      DoublyLinkedList<String> out = new DoublyLinkedList<String>()
-        .append("")
-        .append("")
-        .append("=".repeat(80))
-        .append("❌ FAILURE: " + this.getName())
-        .append("-".repeat(80))
-        .append(this.exc.toString())
-        .append("");
-
-      DoublyLinkedList<String> trace = DoublyLinkedList
-        // from Throwable's stack trace array
-        .fromArray(this.exc.getStackTrace())
-        // then convert to list of strings
-        // using StackTraceElement.toString()
-        .map((trc, idx) -> "        at " + trc.getValue().toString());
-
-      return out.concat(trace);
+      DoublyLinkedList<String> out = new DoublyLinkedList<String>();
+      ArrayList<Result> tests = new ArrayList<Result>();
+      tests.add(this);
+
+      try {
+        new FailureReport.Trace(this).write(tests, out::append);
+      } catch (IOException exc) {
+        // appending to a list can't fail
+      }
+
+      return out;
     }
 
     throw new NotATestResult(this.codeName, "failureStrings");
@@ -1,5 +1,7 @@
 package jspec.lib;
 
+import jspec.utils.list.DoublyLinkedList;
+
 public class ResultSpec extends Group {
   public String desc = "class: lib.Result";
 
@@ -85,6 +87,18 @@ public class ResultSpec extends Group {
       : "Expected '" + actual + "' to equal '" + expected + "'";
   }
 
+  public void testStatusIncludesTimeoutIndicator() {
+    String name = "testName";
+    Result r = new Result(name);
+    r.timeout(new TestTimeout());
+
+    String actual = r.statusString();
+    String expected = name + " ⏰";
+
+    assert actual.compareTo(expected) == 0
+      : "Expected '" + actual + "' to equal '" + expected + "'";
+  }
+
   public void testStatusCanBeGivenAPrefix() {
     String name = "testName";
     Result r = new Result(name);
@@ -95,6 +109,64 @@ public class ResultSpec extends Group {
     assert actual.compareTo(expected) == 0
       : "Expected '" + actual + "' to equal '" + expected + "'";
   }
+
+  public String descFailureHidesRunnerFrames =
+    "A failure's trace leaves out reflection & everything from the runner down";
+  public void testFailureHidesRunnerFrames() throws NotATestResult {
+    Exception exc = new Exception("message");
+    exc.setStackTrace(new StackTraceElement[] {
+      new StackTraceElement("example.MathSpec", "testAdd", "MathSpec.java", 10),
+      new StackTraceElement("jdk.internal.reflect.DirectMethodHandleAccessor", "invoke", null, -1),
+      new StackTraceElement("java.lang.reflect.Method", "invoke", null, -1),
+      new StackTraceElement("jspec.lib.Group", "runTest", "Group.java", 200),
+      new StackTraceElement("jspec.lib.GroupTask", "compute", "GroupTask.java", 40),
+    });
+
+    String actual = ResultFactory.create().fail(exc).failureStrings().reduce(
+      (lines, line, i) -> lines + line.getValue() + "\n", "");
+
+    assert actual.contains("at example.MathSpec.testAdd(MathSpec.java:10)") : actual;
+    assert actual.contains("... 4 more") : actual;
+    assert !actual.contains("reflect") : actual;
+    assert !actual.contains("GroupTask") : actual;
+  }
+
+  public String descFailureKeepsLibraryFrames =
+    "A failure's trace keeps jspec's own classes that aren't part of the runner";
+  public void testFailureKeepsLibraryFrames() throws NotATestResult {
+    Exception exc = new Exception("message");
+    exc.setStackTrace(new StackTraceElement[] {
+      new StackTraceElement("jspec.lib.RunDiff", "compare", "RunDiff.java", 50),
+      new StackTraceElement("jspec.lib.RunDiffSpec", "testCompares", "RunDiffSpec.java", 20),
+      new StackTraceElement("jspec.lib.Group$$Lambda$1", "run", null, -1),
+      new StackTraceElement("jspec.lib.Group", "runTest", "Group.java", 200),
+    });
+
+    String actual = ResultFactory.create().fail(exc).failureStrings().reduce(
+      (lines, line, i) -> lines + line.getValue() + "\n", "");
+
+    assert actual.contains("at jspec.lib.RunDiff.compare(RunDiff.java:50)") : actual;
+    assert actual.contains("at jspec.lib.RunDiffSpec.testCompares(RunDiffSpec.java:20)") : actual;
+    assert actual.contains("... 2 more") : actual;
+  }
+
+  public String descFailureLimitsFrames = "A failure shows a limited number of frames";
+  public void testFailureLimitsFrames() throws NotATestResult {
+    StackTraceElement[] frames = new StackTraceElement[FailureReport.maxFrames + 5];
+    for (int i = 0; i < frames.length; i++) {
+      frames[i] = new StackTraceElement("example.Deep", "recurse", "Deep.java", i);
+    }
+
+    Exception exc = new Exception("message");
+    exc.setStackTrace(frames);
+
+    DoublyLinkedList<String> lines = ResultFactory.create().fail(exc).failureStrings();
+    int shown = lines.reduce(
+      (count, line, i) -> count + (line.getValue().contains("at example.Deep") ? 1 : 0), 0);
+
+    assert shown == FailureReport.maxFrames : shown + " frames shown";
+    assert lines.get(lines.getLength() - 1).getValue().equals("        ... 5 more");
+  }
 }
 
 class ResultFactory {
@@ -0,0 +1,286 @@
+package jspec.lib;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+
+// Saves a ResultsTree as plain text & reads it back, so the results of runs
+// made on different machines (e.g. CI shards) can be merged into one report.
+//
+// The first line is a header, then there's one tab separated line per result
+// in the order they appear in the tree, each with its depth:
+//
+//   G <depth> <nanos> <class name> <desc> <usage> <ordinal>
+//   T <depth> <status> <nanos> <method name> <desc> <failure> <usage> <ordinal>
+//   F <module> <class> <method> <file> <line>
+//   D <depth> <nanos> <usage>
+//
+// where status is one of P, F, E or T (passed, failed, errored or timed out),
+// usage is the CPU nanos, allocated bytes & hook nanos as three fields, & F
+// lines are the stack frames of the failure on the T line before them. The
+// ordinal is the result's place among its siblings, as results written as
+// they finish may come in any order; files w/o it are read in line order.
+// Results written as they happen (see ResultsRecorder) don't know a group's
+// time when it starts, so a D line gives it once the group is done.
+public class ResultsArchive {
+  static String header = "jspec-results 1";
+
+  public static void write(ResultsTree tree, Writer out) throws IOException {
+    ArrayList<IOException> errors = new ArrayList<IOException>();
+    out.write(ResultsArchive.header + "\n");
+
+    tree.forEach((node, depth) -> {
+      // the root is just a placeholder for the top level groups
+      if (depth == 0 || !errors.isEmpty()) return;
+
+      try {
+        ResultsArchive.write(node.getValue(), depth, out);
+      } catch (IOException exc) {
+        errors.add(exc);
+      }
+    });
+
+    if (!errors.isEmpty()) throw errors.get(0);
+  }
+
+  private static void write(Result result, int depth, Writer out) throws IOException {
+    if (result.isTest()) ResultsArchive.writeTest(result, depth, out);
+    else ResultsArchive.writeGroup(result, depth, out);
+  }
+
+  static void writeGroup(Result group, int depth, Writer out) throws IOException {
+    out.write(ResultsArchive.line(
+      "G",
+      Integer.toString(depth),
+      Long.toString(group.getNanos()),
+      group.getCodeName(),
+      group.getDescription(),
+      Long.toString(group.getCpuNanos()),
+      Long.toString(group.getAllocatedBytes()),
+      Long.toString(group.getHookNanos()),
+      Integer.toString(group.getOrdinal())));
+  }
+
+  static void writeTest(Result test, int depth, Writer out) throws IOException {
+    Throwable exc = ResultsArchive.failure(test);
+
+    out.write(ResultsArchive.line(
+      "T",
+      Integer.toString(depth),
+      String.valueOf(ResultsArchive.status(test)),
+      Long.toString(test.getNanos()),
+      test.getCodeName(),
+      test.getDescription(),
+      ResultsArchive.failureText(test),
+      Long.toString(test.getCpuNanos()),
+      Long.toString(test.getAllocatedBytes()),
+      Long.toString(test.getHookNanos()),
+      Integer.toString(test.getOrdinal())));
+
+    if (exc == null) return;
+
+    for (StackTraceElement frame : exc.getStackTrace()) {
+      out.write(ResultsArchive.line(
+        "F",
+        frame.getModuleName(),
+        frame.getClassName(),
+        frame.getMethodName(),
+        frame.getFileName(),
+        Integer.toString(frame.getLineNumber())));
+    }
+  }
+
+  static void writeDone(Result group, int depth, Writer out) throws IOException {
+    out.write(ResultsArchive.line(
+      "D",
+      Integer.toString(depth),
+      Long.toString(group.getNanos()),
+      Long.toString(group.getCpuNanos()),
+      Long.toString(group.getAllocatedBytes()),
+      Long.toString(group.getHookNanos())));
+  }
+
+  public static ResultsTree read(BufferedReader in) throws IOException {
+    ResultsTree tree = new ResultsTree(new Result(""));
+    ResultsArchive.read(in, tree);
+
+    return tree;
+  }
+
+  // adds the results read to the given tree, after any it already has
+  public static void read(BufferedReader in, ResultsTree tree) throws IOException {
+    ResultsArchive.readHeader(in);
+
+    ResultsReplay replay = new ResultsReplay(
+      in,
+      tree.getRoot().getValue(),
+      tree.getChildren().getLength(),
+      new ResultsTreeBuilder(tree));
+
+    while (replay.replay()) {}
+    replay.finish();
+  }
+
+  static void readHeader(BufferedReader in) throws IOException {
+    if (!ResultsArchive.header.equals(in.readLine()))
+      throw new IOException("Not a jspec results file, expected `" + ResultsArchive.header + "` header");
+  }
+
+  static Result test(String[] fields) throws IOException {
+    if (fields[2] == null || fields[2].length() != 1)
+      throw new IOException("Unknown test status `" + fields[2] + "`");
+
+    return ResultsArchive.test(fields[4], fields[5], fields[2].charAt(0), fields[6]);
+  }
+
+  // a test w/ the given status, failing w/ the given text; its failure's stack
+  // frames are set once they've been read
+  static Result test(String name, String desc, char status, String failure)
+    throws IOException
+  {
+    Result result = new Result(name).describe(desc);
+
+    switch (status) {
+      case 'P':
+        return result.pass();
+      case 'F':
+        return result.fail(new RecordedFailure(failure));
+      case 'E':
+        return result.fail(new RecordedError(failure));
+      case 'T':
+        return result.timeout(new TestTimeout(failure, new StackTraceElement[0]));
+      default:
+        throw new IOException("Unknown test status `" + status + "`");
+    }
+  }
+
+  // one of P, F, E or T
+  static char status(Result test) {
+    char status = test.progressChar();
+
+    return status == '.' ? 'P' : status;
+  }
+
+  // a timeout is rebuilt from its message, anything else is shown as is
+  static String failureText(Result test) {
+    Throwable exc = ResultsArchive.failure(test);
+    if (exc == null) return null;
+
+    return test.progressChar() == 'T' ? exc.getMessage() : exc.toString();
+  }
+
+  // adds the usage given in the three fields from `first` on to the result
+  static Result used(Result result, String[] fields, int first) {
+    return result.used(
+      Long.parseLong(fields[first]),
+      Long.parseLong(fields[first + 1]),
+      Long.parseLong(fields[first + 2]));
+  }
+
+  static StackTraceElement frame(String[] fields) {
+    return new StackTraceElement(
+      null, fields[1], null,
+      fields[2], fields[3], fields[4], Integer.parseInt(fields[5]));
+  }
+
+  static Throwable failure(Result test) {
+    try {
+      return test.getFailureExc();
+    } catch (NotATestResult exc) {
+      return null;
+    }
+  }
+
+  private static String line(String ...fields) {
+    StringBuilder out = new StringBuilder();
+
+    for (int i = 0; i < fields.length; i++) {
+      if (i > 0) out.append('\t');
+      if (fields[i] != null) ResultsArchive.escape(fields[i], out);
+    }
+
+    return out.append('\n').toString();
+  }
+
+  // tabs & line breaks in names or messages would break up the line
+  private static void escape(String field, StringBuilder out) {
+    for (int i = 0; i < field.length(); i++) {
+      char c = field.charAt(i);
+
+      switch (c) {
+        case '\\': out.append("\\\\"); break;
+        case '\t': out.append("\\t"); break;
+        case '\n': out.append("\\n"); break;
+        case '\r': out.append("\\r"); break;
+        default: out.append(c);
+      }
+    }
+  }
+
+  static String[] fields(String line) {
+    String[] fields = line.split("\t", -1);
+
+    for (int i = 0; i < fields.length; i++) {
+      fields[i] = ResultsArchive.unescape(fields[i]);
+    }
+
+    return fields;
+  }
+
+  // empty fields were null when written
+  private static String unescape(String field) {
+    if (field.isEmpty()) return null;
+    if (field.indexOf('\\') < 0) return field;
+
+    StringBuilder out = new StringBuilder();
+
+    for (int i = 0; i < field.length(); i++) {
+      char c = field.charAt(i);
+
+      if (c != '\\' || i + 1 == field.length()) {
+        out.append(c);
+        continue;
+      }
+
+      char next = field.charAt(++i);
+      switch (next) {
+        case 't': out.append('\t'); break;
+        case 'n': out.append('\n'); break;
+        case 'r': out.append('\r'); break;
+        default: out.append(next);
+      }
+    }
+
+    return out.toString();
+  }
+}
+
+// failures read back from an archive show exactly what the original did
+class RecordedFailure extends AssertionError {
+  private String text;
+
+  RecordedFailure(String text) {
+    super(text);
+    this.text = text;
+  }
+
+  @Override
+  public String toString() {
+    return this.text;
+  }
+}
+
+class RecordedError extends RuntimeException {
+  private String text;
+
+  RecordedError(String text) {
+    super(text);
+    this.text = text;
+  }
+
+  @Override
+  public String toString() {
+    return this.text;
+  }
+}
@@ -0,0 +1,160 @@
+package jspec.lib;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+public class ResultsArchiveSpec extends Group {
+  public String desc = "class: lib.ResultsArchive";
+
+  public static void main(String[] args) {
+    ResultsArchiveSpec spec = new ResultsArchiveSpec();
+    new Runner(spec)
+      .run(false)
+      .resultStrings()
+      .forEach((node, i) -> System.out.println(node.getValue()));
+  }
+
+  static String save(ResultsTree tree) throws IOException {
+    StringWriter out = new StringWriter();
+    ResultsArchive.write(tree, out);
+
+    return out.toString();
+  }
+
+  static BufferedReader reader(String saved) {
+    return new BufferedReader(new StringReader(saved));
+  }
+
+  public String descRoundTrip = "Results read back are the same as those written";
+  public void testRoundTrip() throws IOException {
+    ResultsTree original = new Runner(new Archived()).run(true).getResults();
+    ResultsTree read = ResultsArchive.read(reader(save(original)));
+
+    Runner before = new Runner().withResults(original);
+    Runner after = new Runner().withResults(read);
+
+    assert before.resultStrings().getLength() == after.resultStrings().getLength()
+      : "the report should be as long as the original";
+
+    String beforeReport = String.join("\n", before.resultStrings());
+    String afterReport = String.join("\n", after.resultStrings());
+
+    assert beforeReport.equals(afterReport)
+      : "the report should be the same as the original";
+  }
+
+  public String descKeepsFailures = "A failure's kind, message & stack frames are kept";
+  public void testKeepsFailures() throws Exception {
+    ResultsTree original = new Runner(new Archived()).run(true).getResults();
+    ResultsTree read = ResultsArchive.read(reader(save(original)));
+
+    Result fails = read.find(n -> "testFails".equals(n.getValue().getCodeName())).getValue();
+    Result errors = read.find(n -> "testErrors".equals(n.getValue().getCodeName())).getValue();
+    Throwable originalExc = original
+      .find(n -> "testFails".equals(n.getValue().getCodeName()))
+      .getValue()
+      .getFailureExc();
+
+    assert fails.getDescription().equals("fails\non two lines");
+    assert fails.progressChar() == 'F' : "a failed assertion is still a failure";
+    assert errors.progressChar() == 'E' : "an exception is still an error";
+    assert fails.getFailureExc().toString().equals(originalExc.toString());
+    assert fails.getFailureExc().getStackTrace().length == originalExc.getStackTrace().length;
+    assert fails.getFailureExc().getStackTrace()[0].toString()
+      .equals(originalExc.getStackTrace()[0].toString());
+  }
+
+  public String descKeepsTimes = "Each group's time is kept";
+  public void testKeepsTimes() throws IOException {
+    ResultsTree original = new Runner(new Archived()).run(true).getResults();
+    ResultsTree read = ResultsArchive.read(reader(save(original)));
+
+    Result group = read.getChildren().getHead().getValue();
+
+    assert group.getNanos() > 0 : "a group that ran took some time";
+    assert group.getNanos() == original.getChildren().getHead().getValue().getNanos();
+  }
+
+  public String descMerges = "Several saved runs can be read into one tree";
+  public void testMerges() throws IOException {
+    class G3 extends Group {
+      public void testPasses() {}
+    }
+
+    ResultsTree first = new Runner(new Archived()).run(true).getResults();
+    ResultsTree second = new Runner(new G3()).run(true).getResults();
+
+    ResultsTree merged = ResultsArchive.read(reader(save(first)));
+    ResultsArchive.read(reader(save(second)), merged);
+
+    assert merged.getChildren().getLength() == 2 : "both top level groups should be there";
+    assert merged.getChildren().getTail().getValue().getCodeName().contains("G3")
+      : "later files' groups go after earlier ones";
+  }
+
+  public String descOutOfOrder = "Results written as they finished are put back in their places";
+  public void testOutOfOrder() throws IOException {
+    StringWriter out = new StringWriter();
+    out.write(ResultsArchive.header + "\n");
+
+    Result second = new Result("Second").at(1);
+    Result first = new Result("First").at(0);
+    ResultsArchive.writeGroup(second, 1, out);
+    ResultsArchive.writeTest(new Result("testC").at(2).pass(), 2, out);
+    ResultsArchive.writeTest(new Result("testA").at(0).pass(), 2, out);
+    ResultsArchive.writeTest(new Result("testB").at(1).pass(), 2, out);
+    ResultsArchive.writeDone(second, 1, out);
+    ResultsArchive.writeGroup(first, 1, out);
+    ResultsArchive.writeTest(new Result("testD").at(0).pass(), 2, out);
+    ResultsArchive.writeDone(first, 1, out);
+
+    ResultsTree read = ResultsArchive.read(reader(out.toString()));
+    String order = read.reduce((names, node, depth) -> names + node.getValue().getCodeName() + " ", "");
+
+    assert order.equals(" First testD Second testA testB testC ") : "got `" + order + "`";
+  }
+
+  public String descNoOrdinals = "Results saved w/o their places are read in the order written";
+  public void testNoOrdinals() throws IOException {
+    String saved = ResultsArchive.header + "\n"
+      + "G\t1\t0\tG\t\t0\t0\t0\n"
+      + "T\t2\tP\t0\ttestB\t\t\t0\t0\t0\n"
+      + "T\t2\tP\t0\ttestA\t\t\t0\t0\t0\n";
+
+    ResultsTree read = ResultsArchive.read(reader(saved));
+    String order = read.reduce((names, node, depth) -> names + node.getValue().getCodeName() + " ", "");
+
+    assert order.equals(" G testB testA ") : "got `" + order + "`";
+  }
+
+  public String descRejectsOthers = "Anything that isn't a saved run is rejected";
+  public void testRejectsOthers() {
+    try {
+      ResultsArchive.read(reader("not\tresults\n"));
+      assert false : "should have thrown";
+    } catch (IOException exc) {
+      assert exc.getMessage().contains("header");
+    }
+  }
+}
+
+// kept out of the spec itself, so its failures aren't run as part of it
+class Archived extends Group {
+  public String desc = "Outer\tgroup";
+
+  public String descPasses = "passes";
+  public void testPasses() {}
+
+  public String descFails = "fails\non two lines";
+  public void testFails() {
+    assert false : "expected";
+  }
+
+  public class G2 extends Group {
+    public void testErrors() {
+      throw new IllegalStateException("broken");
+    }
+  }
+}
@@ -0,0 +1,57 @@
+package jspec.lib;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.IdentityHashMap;
+
+// Writes results in the ResultsArchive format as they happen, so another
+// process can follow the run (see ResultsReplay). Each result is flushed as
+// soon as it's written.
+class ResultsRecorder implements RunListener {
+  private Writer out;
+  private IdentityHashMap<Result, Integer> depths;
+
+  ResultsRecorder(Writer out) {
+    this.out = out;
+    this.depths = new IdentityHashMap<Result, Integer>();
+  }
+
+  @Override
+  public void groupStarted(Result group, Result parent) {
+    // any parent that isn't a known group is the root of the run
+    int depth = this.depths.getOrDefault(parent, 0) + 1;
+    this.depths.put(group, depth);
+
+    this.write(() -> ResultsArchive.writeGroup(group, depth, this.out));
+  }
+
+  @Override
+  public void testPassed(Result test, Result group) {
+    this.write(() -> ResultsArchive.writeTest(test, this.depths.get(group) + 1, this.out));
+  }
+
+  @Override
+  public void testFailed(Result test, Result group) {
+    this.write(() -> ResultsArchive.writeTest(test, this.depths.get(group) + 1, this.out));
+  }
+
+  @Override
+  public void groupFinished(Result group) {
+    int depth = this.depths.remove(group);
+
+    this.write(() -> ResultsArchive.writeDone(group, depth, this.out));
+  }
+
+  interface Write {
+    void write() throws IOException;
+  }
+
+  private void write(Write write) {
+    try {
+      write.write();
+      this.out.flush();
+    } catch (IOException exc) {
+      // whoever was reading has gone, so there's no one left to tell
+    }
+  }
+}
@@ -0,0 +1,154 @@
+package jspec.lib;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+
+// Reads results written by ResultsArchive & gives them to a listener as if
+// they were happening now, e.g. to build a tree from a saved run or to follow
+// a run happening in another process.
+class ResultsReplay {
+  private BufferedReader in;
+  private RunListener listener;
+  // the groups that have started but not finished, starting w/ the root, &
+  // how many results each has so far so every Result knows its place
+  private ArrayList<Result> groups = new ArrayList<Result>();
+  private ArrayList<Integer> counts = new ArrayList<Integer>();
+  // the last test read, waiting on its stack frames before it's given on
+  private Result test;
+  private ArrayList<StackTraceElement> frames = new ArrayList<StackTraceElement>();
+  private int number = 0;
+  private int offset;
+
+  // top level results are placed after the root's first `offset` results
+  ResultsReplay(BufferedReader in, Result root, int offset, RunListener listener) {
+    this.in = in;
+    this.listener = listener;
+    this.groups.add(root);
+    this.counts.add(offset);
+    this.offset = offset;
+  }
+
+  // replays results until the end of the input, giving false, or until an
+  // empty line, giving true; groups still open at the end of the input are
+  // left open, as the results may have been cut short (see finish)
+  boolean replay() throws IOException {
+    String line;
+
+    while ((line = this.in.readLine()) != null) {
+      ++this.number;
+
+      if (line.isEmpty()) {
+        this.flushTest();
+        this.finishDeeperThan(0);
+        return true;
+      }
+
+      try {
+        this.replay(ResultsArchive.fields(line));
+      } catch (ArrayIndexOutOfBoundsException exc) {
+        throw new IOException("Missing fields at line " + this.number);
+      } catch (NumberFormatException exc) {
+        throw new IOException("Malformed number at line " + this.number);
+      }
+    }
+
+    this.flushTest();
+    return false;
+  }
+
+  // finishes every group still open
+  void finish() {
+    this.flushTest();
+    this.finishDeeperThan(0);
+  }
+
+  private void replay(String[] fields) throws IOException {
+    if (fields[0].equals("F")) {
+      this.frames.add(ResultsArchive.frame(fields));
+      return;
+    }
+
+    this.flushTest();
+
+    int depth = Integer.parseInt(fields[1]);
+    if (depth < 1 || depth > this.groups.size())
+      throw new IOException("Result at line " + this.number + " has no parent group");
+
+    switch (fields[0]) {
+      case "G": {
+        this.finishDeeperThan(depth - 1);
+        Result group = ResultsArchive.used(new Result(fields[3]), fields, 5)
+          .describe(fields[4])
+          .took(Long.parseLong(fields[2]))
+          .at(this.place(depth - 1, fields, 8));
+
+        this.listener.groupStarted(group, this.groups.get(depth - 1));
+        this.groups.add(group);
+        this.counts.add(0);
+        break;
+      }
+      case "T":
+        this.finishDeeperThan(depth - 1);
+        this.test = ResultsArchive.used(ResultsArchive.test(fields), fields, 7)
+          .took(Long.parseLong(fields[3]))
+          .at(this.place(depth - 1, fields, 10));
+        break;
+      case "D":
+        if (depth >= this.groups.size())
+          throw new IOException("Group done at line " + this.number + " was never started");
+
+        // a group's totals are only known once it's done
+        ResultsArchive.used(this.groups.get(depth), fields, 3)
+          .took(Long.parseLong(fields[2]));
+        this.finishDeeperThan(depth - 1);
+        break;
+      default:
+        throw new IOException("Unknown result type `" + fields[0] + "` at line " + this.number);
+    }
+  }
+
+  // a result's place among its siblings, as written if it was, otherwise
+  // after the results read before it; top level results go after the root's
+  // first `offset` either way
+  private int place(int depth, String[] fields, int field) {
+    int next = this.next(depth);
+    if (fields.length <= field || fields[field] == null) return next;
+
+    int ordinal = Integer.parseInt(fields[field]);
+
+    return depth == 0 ? this.offset + ordinal : ordinal;
+  }
+
+  private int next(int depth) {
+    int count = this.counts.get(depth);
+    this.counts.set(depth, count + 1);
+
+    return count;
+  }
+
+  // a test is given on once all its stack frames are read
+  private void flushTest() {
+    if (this.test == null) return;
+
+    Result test = this.test;
+    Result group = this.groups.get(this.groups.size() - 1);
+    Throwable exc = ResultsArchive.failure(test);
+    if (exc != null) exc.setStackTrace(this.frames.toArray(new StackTraceElement[0]));
+
+    this.test = null;
+    this.frames.clear();
+
+    this.listener.testStarted(test, group);
+    if (exc == null) this.listener.testPassed(test, group);
+    else this.listener.testFailed(test, group);
+  }
+
+  private void finishDeeperThan(int depth) {
+    while (this.groups.size() > depth + 1) {
+      Result group = this.groups.remove(this.groups.size() - 1);
+      this.counts.remove(this.counts.size() - 1);
+      this.listener.groupFinished(group);
+    }
+  }
+}
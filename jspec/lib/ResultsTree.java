@@ -11,4 +11,9 @@ public class ResultsTree extends Tree<Result> {
   ResultsTree(Result result) {
     super(new Node<Result>(result));
   }
+
+  // every test in the tree, counted as it was added
+  public RunSummary getSummary() {
+    return this.getRoot().getValue().getSummary();
+  }
 }
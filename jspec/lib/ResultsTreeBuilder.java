@@ -0,0 +1,69 @@
+package jspec.lib;
+
+import java.util.IdentityHashMap;
+
+import jspec.utils.Node;
+
+// Builds a ResultsTree as results arrive. Each Result knows its position
+// among its siblings, so the tree comes out the same no matter what order
+// groups & tests finish in.
+class ResultsTreeBuilder implements RunListener {
+  private ResultsTree tree;
+  private IdentityHashMap<Result, Node<Result>> nodes;
+
+  ResultsTreeBuilder(Result root) {
+    this(new ResultsTree(root));
+  }
+
+  // adds to an existing tree, placing results among those it already has
+  ResultsTreeBuilder(ResultsTree tree) {
+    this.tree = tree;
+    this.nodes = new IdentityHashMap<Result, Node<Result>>();
+    this.nodes.put(tree.getRoot().getValue(), tree.getRoot());
+  }
+
+  ResultsTree getTree() {
+    return this.tree;
+  }
+
+  @Override
+  public void groupStarted(Result group, Result parent) {
+    Node<Result> node = new Node<Result>(group);
+    this.nodes.put(group, node);
+    this.insert(parent, node);
+  }
+
+  @Override
+  public void testPassed(Result test, Result group) {
+    this.insert(group, new Node<Result>(test));
+  }
+
+  @Override
+  public void testFailed(Result test, Result group) {
+    this.insert(group, new Node<Result>(test));
+  }
+
+  private void insert(Result parent, Node<Result> node) {
+    Node<Result> parentNode = this.nodes.get(parent);
+    // nothing to add to if the parent was never started
+    if (parentNode == null) return;
+
+    // results mostly arrive in order, so search back from the last child for
+    // the sibling this node belongs after
+    int ordinal = node.getValue().getOrdinal();
+    Node<Result> sibling = parentNode.getTailChild();
+
+    while (sibling != null && sibling.getValue().getOrdinal() > ordinal) {
+      sibling = sibling.getPrevSibling();
+    }
+
+    new ResultsTree(parentNode).insertChildAfter(sibling, node);
+
+    // every group a test is in counts it, so any group's stats are at hand
+    if (node.getValue().isTest()) {
+      for (Node<Result> group = parentNode; group != null; group = group.getParent()) {
+        group.getValue().count(node.getValue());
+      }
+    }
+  }
+}
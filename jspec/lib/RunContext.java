@@ -0,0 +1,154 @@
+package jspec.lib;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class RunContext {
+  // budget given to a test that has no time limit
+  static final long NONE = Long.MAX_VALUE;
+
+  boolean silent;
+  Listeners listeners;
+  // default time limits in ms, 0 means no limit
+  long testTimeout;
+  long groupTimeout;
+  // System.nanoTime() by which the whole run must finish, 0 means no limit
+  long runDeadline;
+  // when set, each test is run on its own fresh Group instance as a task on
+  // this pool, no more of them at once than there are slots; otherwise tests
+  // are run in order on the caller's thread
+  ExecutorService isolation;
+  // a test abandoned for overrunning gives its slot back straight away, as
+  // the thread it's stuck on may never be free again
+  Semaphore slots;
+  // once this many tests have failed no new tests or groups are started,
+  // 0 means never stop early
+  int maxFailures;
+  AtomicInteger failures;
+  private volatile boolean cancelled;
+
+  RunContext(boolean silent) {
+    this.silent = silent;
+    this.listeners = new Listeners();
+    if (!silent) this.listeners.add(new ProgressListener());
+    this.isolation = null;
+    this.slots = null;
+    this.testTimeout = 0;
+    this.groupTimeout = 0;
+    this.runDeadline = 0;
+    this.maxFailures = 0;
+    this.failures = new AtomicInteger();
+    this.cancelled = false;
+  }
+
+  RunContext timeouts(long test, long group, long run) {
+    this.testTimeout = test;
+    this.groupTimeout = group;
+    this.runDeadline = this.deadline(run);
+
+    return this;
+  }
+
+  RunContext maxFailures(int max) {
+    this.maxFailures = max;
+
+    return this;
+  }
+
+  boolean isCancelled() {
+    return this.cancelled;
+  }
+
+  void testStarted(Result test, Result group) {
+    this.listeners.testStarted(test, group);
+  }
+
+  void testFinished(Result test, Result group) {
+    this.listeners.testFinished(test, group);
+
+    try {
+      if (!test.didPass()
+        && this.failures.incrementAndGet() >= this.maxFailures
+        && this.maxFailures > 0)
+        // work already running is left to finish, everything checks this
+        // before starting anything new
+        this.cancelled = true;
+    } catch (NotATestResult exc) {
+      // only test results are ever finished
+    }
+  }
+
+  long deadline(long millis) {
+    return millis > 0 ? System.nanoTime() + millis * 1_000_000 : 0;
+  }
+
+  // how many ms a test starting now may take, given its own time limit & the
+  // deadline of its group; NONE if it has no limit at all
+  long budget(long testMillis, long groupDeadline) {
+    long limit = testMillis > 0 ? testMillis : this.testTimeout;
+
+    return Math.min(limit > 0 ? limit : NONE, this.left(groupDeadline));
+  }
+
+  // how many ms are left before the group's or the run's deadline, NONE if
+  // neither has one
+  long left(long groupDeadline) {
+    long left = NONE;
+    long now = System.nanoTime();
+
+    if (groupDeadline != 0)
+      left = Math.min(left, (groupDeadline - now) / 1_000_000);
+    if (this.runDeadline != 0)
+      left = Math.min(left, (this.runDeadline - now) / 1_000_000);
+
+    return left;
+  }
+
+  // waits for a free slot to run an isolated test in, but only for as long as
+  // its group & the run have left; false if none came free in time
+  boolean takeSlot(long groupDeadline) {
+    long left = this.left(groupDeadline);
+
+    try {
+      if (left != NONE) return left > 0 && this.slots.tryAcquire(left, TimeUnit.MILLISECONDS);
+
+      this.slots.acquire();
+      return true;
+    } catch (InterruptedException exc) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  void freeSlot() {
+    this.slots.release();
+  }
+
+  RunContext isolate(int concurrency) {
+    // threads are only taken from the pool once a slot is free, so it never
+    // holds more than the slots plus any abandoned tests still running
+    this.isolation = Executors.newCachedThreadPool(RunContext.daemonThreads("jspec-test-"));
+    this.slots = new Semaphore(concurrency);
+
+    return this;
+  }
+
+  void close() {
+    if (this.isolation != null) this.isolation.shutdown();
+  }
+
+  static ThreadFactory daemonThreads(String prefix) {
+    AtomicInteger count = new AtomicInteger();
+
+    // daemon threads so a test that never returns can't keep the JVM alive
+    return (runnable) -> {
+      Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+}
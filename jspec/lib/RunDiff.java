@@ -0,0 +1,176 @@
+package jspec.lib;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+
+import jspec.utils.list.DoublyLinkedList;
+
+// Compares two RunLogs test by test, e.g. last night's run w/ tonight's, to
+// show what has started failing, what has been fixed & what has got slower.
+// Tests are matched by the class & method names of their groups & themselves,
+// so changing a description doesn't lose track of a test.
+public class RunDiff {
+  private LinkedHashMap<String, Outcome> before;
+  private LinkedHashMap<String, Outcome> after;
+
+  private RunDiff(LinkedHashMap<String, Outcome> before, LinkedHashMap<String, Outcome> after) {
+    this.before = before;
+    this.after = after;
+  }
+
+  public static RunDiff of(Path before, Path after) throws IOException {
+    return new RunDiff(Outcomes.read(before), Outcomes.read(after));
+  }
+
+  // failing now but passed before, or didn't exist
+  public ArrayList<String> newlyFailing() {
+    ArrayList<String> tests = new ArrayList<String>();
+
+    this.after.forEach((key, now) -> {
+      Outcome then = this.before.get(key);
+      if (!now.passed() && (then == null || then.passed())) tests.add(now.name);
+    });
+
+    return tests;
+  }
+
+  public ArrayList<String> newlyPassing() {
+    ArrayList<String> tests = new ArrayList<String>();
+
+    this.after.forEach((key, now) -> {
+      Outcome then = this.before.get(key);
+      if (now.passed() && then != null && !then.passed()) tests.add(now.name);
+    });
+
+    return tests;
+  }
+
+  // tests that passed both times & took more than `percent` longer, ignoring
+  // any that took less than `minNanos` both times as too quick to measure,
+  // most slowed down first
+  public ArrayList<String> slower(double percent, long minNanos) {
+    ArrayList<Outcome[]> slower = new ArrayList<Outcome[]>();
+
+    this.after.forEach((key, now) -> {
+      Outcome then = this.before.get(key);
+      if (then == null || !then.passed() || !now.passed()) return;
+      if (Math.max(then.nanos, now.nanos) < minNanos) return;
+
+      if (now.nanos > then.nanos * (1 + percent / 100))
+        slower.add(new Outcome[] { then, now });
+    });
+
+    slower.sort((a, b) -> Long.compare(b[1].nanos - b[0].nanos, a[1].nanos - a[0].nanos));
+
+    ArrayList<String> tests = new ArrayList<String>();
+    for (Outcome[] pair : slower) {
+      String change = pair[0].nanos == 0
+        ? ""
+        : String.format(", +%.0f%%", 100.0 * (pair[1].nanos - pair[0].nanos) / pair[0].nanos);
+
+      tests.add(pair[1].name + ": " + Result.millis(pair[0].nanos)
+        + " -> " + Result.millis(pair[1].nanos) + change);
+    }
+
+    return tests;
+  }
+
+  public DoublyLinkedList<String> strings(double percent, long minNanos, String indent) {
+    int added = 0;
+    for (String key : this.after.keySet()) if (!this.before.containsKey(key)) ++added;
+    int removed = 0;
+    for (String key : this.before.keySet()) if (!this.after.containsKey(key)) ++removed;
+
+    DoublyLinkedList<String> out = new DoublyLinkedList<String>()
+      .append("")
+      .append(this.before.size() + " tests before, " + this.after.size() + " tests after ("
+        + added + " added, " + removed + " removed)");
+
+    RunDiff.section(out, "Newly failing", this.newlyFailing(), indent);
+    RunDiff.section(out, "Newly passing", this.newlyPassing(), indent);
+    RunDiff.section(
+      out,
+      "Slower by more than " + String.format("%.0f", percent) + "%",
+      this.slower(percent, minNanos),
+      indent);
+
+    return out.append("");
+  }
+
+  private static void section(
+    DoublyLinkedList<String> out,
+    String title,
+    ArrayList<String> tests,
+    String indent)
+  {
+    out.append("").append(title + " (" + tests.size() + "):");
+    if (tests.isEmpty()) out.append(indent + "none");
+
+    tests.forEach(test -> out.append(indent + test));
+  }
+
+  static class Outcome {
+    String name;
+    char status;
+    long nanos;
+
+    Outcome(String name, char status, long nanos) {
+      this.name = name;
+      this.status = status;
+      this.nanos = nanos;
+    }
+
+    boolean passed() {
+      return this.status == 'P';
+    }
+  }
+
+  // each test's outcome, keyed by the names of its groups & itself, read
+  // straight from a log w/o building a tree of results
+  static class Outcomes implements RunListener {
+    private LinkedHashMap<String, Outcome> outcomes = new LinkedHashMap<String, Outcome>();
+    private IdentityHashMap<Result, String> keys = new IdentityHashMap<Result, String>();
+
+    static LinkedHashMap<String, Outcome> read(Path log) throws IOException {
+      Outcomes outcomes = new Outcomes();
+      RunLog.replay(log, outcomes);
+
+      return outcomes.outcomes;
+    }
+
+    @Override
+    public void groupStarted(Result group, Result parent) {
+      String parentKey = this.keys.get(parent);
+      this.keys.put(
+        group,
+        parentKey == null ? group.getCodeName() : parentKey + "/" + group.getCodeName());
+    }
+
+    @Override
+    public void testPassed(Result test, Result group) {
+      this.testFinished(test, group);
+    }
+
+    @Override
+    public void testFailed(Result test, Result group) {
+      this.testFinished(test, group);
+    }
+
+    private void testFinished(Result test, Result group) {
+      this.outcomes.put(
+        this.keys.get(group) + "#" + test.getCodeName(),
+        new Outcome(
+          test.getName() + " (" + group.getName() + ")",
+          ResultsArchive.status(test),
+          test.getNanos()));
+    }
+
+    @Override
+    public void groupFinished(Result group) {
+      this.keys.remove(group);
+    }
+  }
+}
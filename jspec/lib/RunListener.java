@@ -0,0 +1,24 @@
+package jspec.lib;
+
+public interface RunListener {
+  // Events are given to a listener one at a time, even when tests are run
+  // concurrently, but tests in different groups may finish in any order.
+  // Each test & group is given as the same Result object in every event.
+
+  default void runStarted() {}
+
+  // parent is the Result of the enclosing group, or the root of the run
+  default void groupStarted(Result group, Result parent) {}
+
+  default void testStarted(Result test, Result group) {}
+
+  default void testPassed(Result test, Result group) {}
+
+  // includes tests that errored or timed out
+  default void testFailed(Result test, Result group) {}
+
+  // given once the group's tests & all its nested groups have finished
+  default void groupFinished(Result group) {}
+
+  default void runFinished() {}
+}
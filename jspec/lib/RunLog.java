@@ -0,0 +1,68 @@
+package jspec.lib;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// A compact binary log of a run, written as it happens (see RunLogWriter) &
+// read back through a memory map, so past runs can be reported on again or
+// compared w/ each other (see RunDiff) however big they are.
+//
+// After a header of the bytes `JSPL`, a version byte & the time the run
+// started, the log is a series of records, each a tag byte followed by its
+// fields. Numbers are zigzag varints, & names, messages & failures are only
+// written once, the first time they're used, & referred to by number after:
+//
+//   S <length> <UTF-8 bytes>       the next string, numbered from 1
+//   X <text> <frames> <frame>...   the next failure, numbered from 1, each
+//                                  frame being <module> <class> <method>
+//                                  <file> <line>
+//   G <id> <parent> <ordinal> <name> <desc>
+//   T <group> <ordinal> <name> <desc> <status> <nanos> <usage> <failure>
+//   D <group> <nanos> <usage>
+//   E <time>
+//
+// where strings & failures are given by number, or 0 for none, the root of
+// the run is group 0, status is the byte P, F, E or T (see ResultsArchive),
+// usage is the CPU nanos, allocated bytes & hook nanos, & times are in
+// milliseconds since the epoch. A log cut short, e.g. by a crash, is read up
+// to the last whole record.
+public class RunLog {
+  static final int magic = 0x4a53504c;
+  static final byte version = 1;
+
+  static final byte string = 'S';
+  static final byte failure = 'X';
+  static final byte group = 'G';
+  static final byte test = 'T';
+  static final byte done = 'D';
+  static final byte end = 'E';
+
+  public static ResultsTree read(Path file) throws IOException {
+    ResultsTree tree = new ResultsTree(new Result(""));
+    RunLog.replay(file, tree.getRoot().getValue(), new ResultsTreeBuilder(tree));
+
+    return tree;
+  }
+
+  // gives every result in the log to the listener, in the order they happened
+  public static void replay(Path file, RunListener listener) throws IOException {
+    RunLog.replay(file, new Result(""), listener);
+  }
+
+  private static void replay(Path file, Result root, RunListener listener)
+    throws IOException
+  {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      // a single map can only cover 2 GB
+      if (channel.size() > Integer.MAX_VALUE)
+        throw new IOException("Run log is too large to read: " + file);
+
+      new RunLogReader(
+        channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()),
+        root,
+        listener).replay();
+    }
+  }
+}
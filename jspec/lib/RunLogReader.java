@@ -0,0 +1,189 @@
+package jspec.lib;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+// Reads a RunLog straight out of a buffer, usually a memory map of the file,
+// & gives the results to a listener as if they were happening now.
+class RunLogReader {
+  private ByteBuffer in;
+  private Result root;
+  private RunListener listener;
+  // everything numbered so far, w/ nothing at 0
+  private ArrayList<String> strings = new ArrayList<String>();
+  private ArrayList<String> failureTexts = new ArrayList<String>();
+  private ArrayList<StackTraceElement[]> failureFrames = new ArrayList<StackTraceElement[]>();
+  // groups started but not finished, in the order they started
+  private LinkedHashMap<Long, Result> groups = new LinkedHashMap<Long, Result>();
+
+  RunLogReader(ByteBuffer in, Result root, RunListener listener) {
+    this.in = in;
+    this.root = root;
+    this.listener = listener;
+    this.strings.add(null);
+    this.failureTexts.add(null);
+    this.failureFrames.add(null);
+  }
+
+  void replay() throws IOException {
+    try {
+      if (this.in.getInt() != RunLog.magic)
+        throw new IOException("Not a jspec run log");
+      if (this.in.get() != RunLog.version)
+        throw new IOException("Unsupported jspec run log version");
+      this.number();
+    } catch (BufferUnderflowException exc) {
+      throw new IOException("Not a jspec run log");
+    }
+
+    this.listener.runStarted();
+
+    try {
+      // nothing is given on from a record until it's been read whole
+      while (this.in.hasRemaining() && this.record()) {}
+    } catch (BufferUnderflowException exc) {
+      // the log was cut short part way through a record
+    }
+
+    // groups left open by a run that didn't finish
+    ArrayList<Result> open = new ArrayList<Result>(this.groups.values());
+    for (int i = open.size() - 1; i >= 0; i--) {
+      this.listener.groupFinished(open.get(i));
+    }
+
+    this.listener.runFinished();
+  }
+
+  // false once the run's end is read
+  private boolean record() throws IOException {
+    byte tag = this.in.get();
+
+    switch (tag) {
+      case RunLog.string: {
+        long length = this.number();
+        if (length < 0 || length > this.in.remaining()) throw new BufferUnderflowException();
+
+        byte[] bytes = new byte[(int) length];
+        this.in.get(bytes);
+        this.strings.add(new String(bytes, StandardCharsets.UTF_8));
+        return true;
+      }
+      case RunLog.failure: {
+        String text = this.string();
+        long count = this.number();
+        // each frame takes at least 5 bytes
+        if (count < 0 || count > this.in.remaining() / 5) throw new BufferUnderflowException();
+
+        StackTraceElement[] frames = new StackTraceElement[(int) count];
+
+        for (int i = 0; i < frames.length; i++) {
+          String module = this.string();
+          String type = this.string();
+          String method = this.string();
+          String file = this.string();
+          frames[i] = new StackTraceElement(
+            null, module, null, type, method, file, (int) this.number());
+        }
+
+        this.failureTexts.add(text);
+        this.failureFrames.add(frames);
+        return true;
+      }
+      case RunLog.group: {
+        long id = this.number();
+        Result parent = this.group(this.number());
+        int ordinal = (int) this.number();
+        Result group = new Result(this.string()).describe(this.string()).at(ordinal);
+
+        this.groups.put(id, group);
+        this.listener.groupStarted(group, parent);
+        return true;
+      }
+      case RunLog.test: {
+        Result group = this.group(this.number());
+        int ordinal = (int) this.number();
+        String name = this.string();
+        String desc = this.string();
+        char status = (char) this.in.get();
+        long nanos = this.number();
+        long cpu = this.number();
+        long bytes = this.number();
+        long hooks = this.number();
+        int failure = (int) this.number();
+
+        if (failure < 0 || failure >= this.failureTexts.size())
+          throw new IOException("Run log refers to a failure it never wrote");
+
+        Result test = ResultsArchive
+          .test(name, desc, status, this.failureTexts.get(failure))
+          .at(ordinal)
+          .took(nanos)
+          .used(cpu, bytes, hooks);
+        if (failure > 0)
+          ResultsArchive.failure(test).setStackTrace(this.failureFrames.get(failure));
+
+        this.listener.testStarted(test, group);
+        if (status == 'P') this.listener.testPassed(test, group);
+        else this.listener.testFailed(test, group);
+        return true;
+      }
+      case RunLog.done: {
+        long id = this.number();
+        long nanos = this.number();
+        long cpu = this.number();
+        long bytes = this.number();
+        long hooks = this.number();
+
+        Result group = this.groups.remove(id);
+        if (group == null) throw new IOException("Run log finishes a group it never started");
+
+        // a group's totals are only known once it's done
+        group.took(nanos).used(cpu, bytes, hooks);
+        this.listener.groupFinished(group);
+        return true;
+      }
+      case RunLog.end:
+        this.number();
+        return false;
+      default:
+        throw new IOException(
+          "Unknown record `" + (char) tag + "` at byte " + (this.in.position() - 1) + " of run log");
+    }
+  }
+
+  private Result group(long id) throws IOException {
+    if (id == 0) return this.root;
+
+    Result group = this.groups.get(id);
+    if (group == null) throw new IOException("Run log refers to a group it never started");
+
+    return group;
+  }
+
+  private String string() throws IOException {
+    long number = this.number();
+    if (number < 0 || number >= this.strings.size())
+      throw new IOException("Run log refers to a string it never wrote");
+
+    return this.strings.get((int) number);
+  }
+
+  // see RunLogWriter.number
+  private long number() {
+    long bits = 0;
+    int shift = 0;
+    byte b;
+
+    do {
+      b = this.in.get();
+      bits |= (long) (b & 0x7f) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0 && shift < 64);
+
+    return (bits >>> 1) ^ -(bits & 1);
+  }
+}
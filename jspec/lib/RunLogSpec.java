@@ -0,0 +1,142 @@
+package jspec.lib;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import jspec.utils.ValueNotFound;
+
+public class RunLogSpec extends Group {
+  public String desc = "class: lib.RunLog";
+
+  public static void main(String[] args) {
+    RunLogSpec spec = new RunLogSpec();
+    new Runner(spec)
+      .run(false)
+      .resultStrings()
+      .forEach((node, i) -> System.out.println(node.getValue()));
+  }
+
+  static byte[] log(Group group) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new Runner(group).addListener(new RunLogWriter(out)).run(true);
+
+    return out.toByteArray();
+  }
+
+  static Path file(byte[] log) throws IOException {
+    Path file = Files.createTempFile("jspec-run", ".log");
+    file.toFile().deleteOnExit();
+
+    return Files.write(file, log);
+  }
+
+  // the whole tree, as saved for merging
+  static String archive(ResultsTree tree) throws IOException {
+    StringWriter out = new StringWriter();
+    ResultsArchive.write(tree, out);
+
+    return out.toString();
+  }
+
+  public String descRoundTrip = "Results read back are the same as those that ran, times & failures included";
+  public void testRoundTrip() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ResultsTree original = new Runner(new Archived())
+      .addListener(new RunLogWriter(out))
+      .run(true)
+      .getResults();
+
+    ResultsTree read = RunLog.read(file(out.toByteArray()));
+
+    assert archive(read).equals(archive(original)) : archive(read);
+  }
+
+  public String descInternsFailures = "A failure shared by many tests is only written once";
+  public void testInternsFailures() throws IOException {
+    byte[] three = log(new BrokenSetup());
+
+    class Wider extends BrokenSetup {
+      public void testFour() {}
+      public void testFive() {}
+      public void testSix() {}
+    }
+    byte[] six = log(new Wider());
+
+    // three more tests cost their names & a few bytes each, not a trace each
+    assert six.length - three.length < 150 : three.length + " vs " + six.length + " bytes";
+  }
+
+  public String descCutShort = "A log cut short is read up to its last whole record";
+  public void testCutShort() throws IOException, ValueNotFound {
+    byte[] log = log(new Archived());
+    ResultsTree read = RunLog.read(file(Arrays.copyOf(log, log.length - 20)));
+
+    assert read.getChildren().getLength() == 1 : "the group that started is still there";
+    assert read.find(n -> "testPasses".equals(n.getValue().getCodeName())) != null;
+  }
+
+  public String descRejectsOthers = "Anything that isn't a run log is rejected";
+  public void testRejectsOthers() throws IOException {
+    try {
+      RunLog.read(file("jspec-results 1\n".getBytes()));
+      assert false : "should have thrown";
+    } catch (IOException exc) {
+      assert exc.getMessage().contains("Not a jspec run log") : exc.getMessage();
+    }
+  }
+
+  public class Diffs extends Group {
+    public String desc = "Two run logs can be compared";
+
+    public String descStatus = "Lists tests that are newly failing & newly passing";
+    public void testStatus() throws IOException {
+      Path before = file(log(new Changing(false)));
+      Path after = file(log(new Changing(true)));
+
+      RunDiff diff = RunDiff.of(before, after);
+
+      assert diff.newlyFailing().size() == 1 : diff.newlyFailing();
+      assert diff.newlyFailing().get(0).startsWith("testFlips") : diff.newlyFailing();
+      assert diff.newlyPassing().isEmpty() : diff.newlyPassing();
+
+      RunDiff back = RunDiff.of(after, before);
+      assert back.newlyFailing().isEmpty() : back.newlyFailing();
+      assert back.newlyPassing().size() == 1 : back.newlyPassing();
+    }
+
+    public String descSlower = "Lists tests that got slower by more than a given percentage";
+    public void testSlower() throws IOException {
+      Path before = file(log(new Changing(false)));
+      Path after = file(log(new Changing(true)));
+
+      RunDiff diff = RunDiff.of(before, after);
+
+      assert diff.slower(50, 3_000_000).size() == 1 : diff.slower(50, 3_000_000);
+      assert diff.slower(50, 3_000_000).get(0).startsWith("testSlows") : diff.slower(50, 3_000_000);
+      assert diff.slower(50, 1_000_000_000).isEmpty() : "too quick to count";
+    }
+  }
+}
+
+// top level so its failures aren't run as part of the spec
+class Changing extends Group {
+  boolean later;
+
+  Changing(boolean later) {
+    this.later = later;
+  }
+
+  public void testSteady() {}
+
+  public void testFlips() {
+    assert !this.later : "broken later";
+  }
+
+  public void testSlows() throws InterruptedException {
+    Thread.sleep(this.later ? 40 : 5);
+  }
+}
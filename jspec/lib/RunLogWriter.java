@@ -0,0 +1,198 @@
+package jspec.lib;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+// Writes a RunLog as the run happens, appending a record for each group &
+// test as it starts or finishes. Output is buffered & flushed as each group
+// finishes, so a run that dies part way leaves a log of what it got through.
+public class RunLogWriter implements RunListener {
+  private DataOutputStream out;
+  private IOException error;
+  // the number of each string & failure already written
+  private HashMap<String, Integer> strings = new HashMap<String, Integer>();
+  private HashMap<List<Object>, Integer> failures = new HashMap<List<Object>, Integer>();
+  private IdentityHashMap<Result, Integer> groups = new IdentityHashMap<Result, Integer>();
+  private int lastGroup = 0;
+
+  public RunLogWriter(OutputStream out) {
+    this.out = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+  }
+
+  // the first error writing the log, if there was one; nothing more is
+  // written after it
+  public IOException getError() {
+    return this.error;
+  }
+
+  @Override
+  public void runStarted() {
+    this.write(() -> {
+      this.out.writeInt(RunLog.magic);
+      this.out.writeByte(RunLog.version);
+      this.number(System.currentTimeMillis());
+    });
+  }
+
+  @Override
+  public void groupStarted(Result group, Result parent) {
+    this.write(() -> {
+      int name = this.string(group.getCodeName());
+      int desc = this.string(group.getDescription());
+      int id = ++this.lastGroup;
+      this.groups.put(group, id);
+
+      this.out.writeByte(RunLog.group);
+      this.number(id);
+      // any parent that isn't a known group is the root of the run
+      this.number(this.groups.getOrDefault(parent, 0));
+      this.number(group.getOrdinal());
+      this.number(name);
+      this.number(desc);
+    });
+  }
+
+  @Override
+  public void testPassed(Result test, Result group) {
+    this.testFinished(test, group);
+  }
+
+  @Override
+  public void testFailed(Result test, Result group) {
+    this.testFinished(test, group);
+  }
+
+  private void testFinished(Result test, Result group) {
+    this.write(() -> {
+      int name = this.string(test.getCodeName());
+      int desc = this.string(test.getDescription());
+      int failure = this.failure(test);
+
+      this.out.writeByte(RunLog.test);
+      this.number(this.groups.getOrDefault(group, 0));
+      this.number(test.getOrdinal());
+      this.number(name);
+      this.number(desc);
+      this.out.writeByte(ResultsArchive.status(test));
+      this.number(test.getNanos());
+      this.usage(test);
+      this.number(failure);
+    });
+  }
+
+  @Override
+  public void groupFinished(Result group) {
+    this.write(() -> {
+      Integer id = this.groups.remove(group);
+      if (id == null) return;
+
+      this.out.writeByte(RunLog.done);
+      this.number(id);
+      this.number(group.getNanos());
+      this.usage(group);
+      this.out.flush();
+    });
+  }
+
+  @Override
+  public void runFinished() {
+    this.write(() -> {
+      this.out.writeByte(RunLog.end);
+      this.number(System.currentTimeMillis());
+      this.out.flush();
+    });
+  }
+
+  private void usage(Result result) throws IOException {
+    this.number(result.getCpuNanos());
+    this.number(result.getAllocatedBytes());
+    this.number(result.getHookNanos());
+  }
+
+  // the string's number, writing it first if it's new
+  private int string(String value) throws IOException {
+    if (value == null) return 0;
+
+    Integer known = this.strings.get(value);
+    if (known != null) return known;
+
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    this.out.writeByte(RunLog.string);
+    this.number(bytes.length);
+    this.out.write(bytes);
+
+    int number = this.strings.size() + 1;
+    this.strings.put(value, number);
+
+    return number;
+  }
+
+  // the failure's number, writing it first if no test has failed the same
+  // way before
+  private int failure(Result test) throws IOException {
+    String text = ResultsArchive.failureText(test);
+    if (text == null) return 0;
+
+    StackTraceElement[] frames = ResultsArchive.failure(test).getStackTrace();
+    List<Object> signature = List.of(text, Arrays.asList(frames));
+
+    Integer known = this.failures.get(signature);
+    if (known != null) return known;
+
+    // every string is written before the record using it
+    int[] fields = new int[frames.length * 4];
+    for (int i = 0; i < frames.length; i++) {
+      fields[i * 4] = this.string(frames[i].getModuleName());
+      fields[i * 4 + 1] = this.string(frames[i].getClassName());
+      fields[i * 4 + 2] = this.string(frames[i].getMethodName());
+      fields[i * 4 + 3] = this.string(frames[i].getFileName());
+    }
+    int textNumber = this.string(text);
+
+    this.out.writeByte(RunLog.failure);
+    this.number(textNumber);
+    this.number(frames.length);
+    for (int i = 0; i < frames.length; i++) {
+      for (int j = 0; j < 4; j++) this.number(fields[i * 4 + j]);
+      this.number(frames[i].getLineNumber());
+    }
+
+    int number = this.failures.size() + 1;
+    this.failures.put(signature, number);
+
+    return number;
+  }
+
+  // zigzag encoded, so small negative numbers are small too, then 7 bits to a
+  // byte w/ the top bit set on all but the last
+  private void number(long value) throws IOException {
+    long bits = (value << 1) ^ (value >> 63);
+
+    while ((bits & ~0x7fL) != 0) {
+      this.out.writeByte((int) ((bits & 0x7f) | 0x80));
+      bits >>>= 7;
+    }
+    this.out.writeByte((int) bits);
+  }
+
+  interface Write {
+    void write() throws IOException;
+  }
+
+  private void write(Write write) {
+    if (this.error != null) return;
+
+    try {
+      write.write();
+    } catch (IOException exc) {
+      this.error = exc;
+    }
+  }
+}
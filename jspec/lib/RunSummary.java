@@ -0,0 +1,96 @@
+package jspec.lib;
+
+// Counts of the tests in a run, or in one group of it, by how they finished,
+// w/ the time & memory they used between them. Never changed once made: each
+// test recorded gives a new summary, so counting is constant time & a summary
+// can be handed out while the run carries on.
+public class RunSummary {
+  static final RunSummary empty = new RunSummary(0, 0, 0, 0, 0, 0, 0, 0);
+
+  private final int passed;
+  private final int failed;
+  private final int errored;
+  private final int timedOut;
+  private final long nanos;
+  private final long cpuNanos;
+  private final long allocatedBytes;
+  private final long hookNanos;
+
+  private RunSummary(
+    int passed,
+    int failed,
+    int errored,
+    int timedOut,
+    long nanos,
+    long cpuNanos,
+    long allocatedBytes,
+    long hookNanos)
+  {
+    this.passed = passed;
+    this.failed = failed;
+    this.errored = errored;
+    this.timedOut = timedOut;
+    this.nanos = nanos;
+    this.cpuNanos = cpuNanos;
+    this.allocatedBytes = allocatedBytes;
+    this.hookNanos = hookNanos;
+  }
+
+  // this summary w/ one more finished test in it
+  RunSummary with(Result test) {
+    char status = test.progressChar();
+
+    return new RunSummary(
+      this.passed + (status == '.' ? 1 : 0),
+      this.failed + (status == 'F' ? 1 : 0),
+      this.errored + (status == 'E' ? 1 : 0),
+      this.timedOut + (status == 'T' ? 1 : 0),
+      this.nanos + test.getNanos(),
+      this.cpuNanos + test.getCpuNanos(),
+      this.allocatedBytes + test.getAllocatedBytes(),
+      this.hookNanos + test.getHookNanos());
+  }
+
+  public int getTests() {
+    return this.passed + this.getFailures();
+  }
+
+  public int getPassed() {
+    return this.passed;
+  }
+
+  // every test that didn't pass, for whatever reason
+  public int getFailures() {
+    return this.failed + this.errored + this.timedOut;
+  }
+
+  public int getFailed() {
+    return this.failed;
+  }
+
+  public int getErrored() {
+    return this.errored;
+  }
+
+  public int getTimedOut() {
+    return this.timedOut;
+  }
+
+  // wall clock time of the tests added together, not of the run, as tests
+  // may have run side by side
+  public long getNanos() {
+    return this.nanos;
+  }
+
+  public long getCpuNanos() {
+    return this.cpuNanos;
+  }
+
+  public long getAllocatedBytes() {
+    return this.allocatedBytes;
+  }
+
+  public long getHookNanos() {
+    return this.hookNanos;
+  }
+}
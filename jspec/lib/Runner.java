@@ -1,6 +1,11 @@
 package jspec.lib;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import jspec.utils.Node;
 import jspec.utils.list.DoublyLinkedList;
 
@@ -9,8 +14,21 @@ public class Runner {
 
   private DoublyLinkedList<Group> groups;
   private ResultsTree results;
-  private int totalTests;
-  private int failedTests;
+  // counted as each test finishes
+  private volatile RunSummary summary = RunSummary.empty;
+  private int parallelism = 1;
+  private int isolation = 0;
+  private int forks = 0;
+  private long testTimeout = 0;
+  private long groupTimeout = 0;
+  private long runTimeout = 0;
+  private ArrayList<RunListener> listeners = new ArrayList<RunListener>();
+  private boolean keepResults = true;
+  private int maxFailures = 0;
+  private boolean stoppedEarly = false;
+  private boolean timings = false;
+  private int slowest = 0;
+  private Latencies latencies;
 
   public Runner() {
     this.groups = new DoublyLinkedList<Group>();
@@ -32,57 +50,179 @@ public class Runner {
     return this.groups;
   }
 
+  // how many tests passed & failed, which doesn't need the results kept
+  public RunSummary getSummary() {
+    return this.summary;
+  }
+
   public ResultsTree getResults() {
     return this.results;
   }
 
+  // report on results from elsewhere, e.g. merged from several saved runs,
+  // instead of running any groups
+  public Runner withResults(ResultsTree results) {
+    this.results = results;
+    this.summary = results.getSummary();
+    this.latencies = null;
+
+    return this;
+  }
+
+  public Runner parallel(int parallelism) {
+    this.parallelism = parallelism;
+
+    return this;
+  }
+
+  public int getParallelism() {
+    return this.parallelism;
+  }
+
+  public Runner isolate(int concurrency) {
+    this.isolation = concurrency;
+
+    return this;
+  }
+
+  public int getIsolation() {
+    return this.isolation;
+  }
+
+  // run each top level Group in one of a pool of this many separate JVMs
+  public Runner fork(int workers) {
+    this.forks = workers;
+
+    return this;
+  }
+
+  public int getForks() {
+    return this.forks;
+  }
+
+  public Runner timeouts(long test, long group, long run) {
+    this.testTimeout = test;
+    this.groupTimeout = group;
+    this.runTimeout = run;
+
+    return this;
+  }
+
+  public Runner addListener(RunListener listener) {
+    this.listeners.add(listener);
+
+    return this;
+  }
+
+  public Runner keepResults(boolean keep) {
+    this.keepResults = keep;
+
+    return this;
+  }
+
+  public Runner maxFailures(int max) {
+    this.maxFailures = max;
+
+    return this;
+  }
+
+  public boolean stoppedEarly() {
+    return this.stoppedEarly;
+  }
+
+  // report how long each test & group took & what it used
+  public Runner timings(boolean timings) {
+    this.timings = timings;
+
+    return this;
+  }
+
+  // report the n slowest tests & groups, w/ percentiles of the time taken by
+  // the tests in each group
+  public Runner slowest(int n) {
+    this.slowest = n;
+
+    return this;
+  }
+
   public Runner run(boolean silent) {
     // start a tree w/ just the root node to add Results to
     Result root = new Result("");
-    this.results = new ResultsTree(root);
+    RunContext context = new RunContext(silent)
+      .timeouts(this.testTimeout, this.groupTimeout, this.runTimeout)
+      .maxFailures(this.maxFailures);
+    if (this.isolation > 0) context.isolate(this.isolation);
+
+    // building the results tree is just one more listener
+    this.results = null;
+    if (this.keepResults) {
+      ResultsTreeBuilder builder = new ResultsTreeBuilder(root);
+      context.listeners.add(builder);
+      this.results = builder.getTree();
+    }
+    this.summary = RunSummary.empty;
+    context.listeners.add(new RunListener() {
+      @Override
+      public void testPassed(Result test, Result group) {
+        Runner.this.summary = Runner.this.summary.with(test);
+      }
+
+      @Override
+      public void testFailed(Result test, Result group) {
+        Runner.this.summary = Runner.this.summary.with(test);
+      }
+    });
+
+    this.latencies = null;
+    if (this.slowest > 0) {
+      this.latencies = new Latencies(this.slowest);
+      context.listeners.add(this.latencies);
+    }
+    this.listeners.forEach(listener -> context.listeners.add(listener));
 
     // Pad w/ empty line before
     if (!silent) System.out.println();
-    // build results tree up from each group in Runner
-    this.groups.forEach(
-      (grp, idx) -> this.buildResults(this.results, grp.getValue(), silent));
+
+    try {
+      context.listeners.runStarted();
+      // build results tree up from each group in Runner
+      this.runGroups(context, root);
+      this.stoppedEarly = context.isCancelled();
+      context.listeners.runFinished();
+    } finally {
+      context.close();
+    }
 
     return this;
   }
 
-  private ResultsTree buildResults(
-    ResultsTree tree,
-    Group group,
-    boolean silent
-  ) {
-    // Add this Group as a Result child to the tree
-    String groupDesc = null;
+  private void runGroups(RunContext context, Result root) {
+    // forked workers run the groups themselves, each in its own JVM
+    if (this.forks > 0) {
+      new ForkedPool(this.forks, context, this.isolation).runAll(this.groups, root);
+      return;
+    }
 
-    try {
-      groupDesc = (String)group.getClass().getField("desc").get(group);
-    } catch (IllegalAccessException exc) {
-      System.err.println("Warning: the `desc` field on a test Group must be public for it to be used by the test Runner.");
-      // do nothing, leave desc as null
-    } catch (NoSuchFieldException exc) {
-      // do nothing, leave desc as null
+    // a single thread just walks the groups in order on the caller's thread
+    if (this.parallelism <= 1) {
+      GroupTask.runAll(this.groups, root, 0, context, false);
+      return;
     }
 
-    String groupName = groupDesc != null
-      ? groupDesc
-      : group.getClass().getName();
-    Node<Result> currNode = new Node<Result>(new Result(groupName));
-    tree.appendChild(currNode);
-    // visit Group to execute tests & discover children
-    VisitResults visited = group.visit(silent);
-    // make new tree w/ child as root
-    ResultsTree childTree = new ResultsTree(currNode);
-    // add each result as child to tree
-    visited.getResults().forEach((res, idx) -> childTree.appendChild(res));
-    // recur on current group's list of children
-    visited.getChildren().forEach(
-      (grp, idx) -> this.buildResults(childTree, grp.getValue(), silent));
+    // otherwise, hand the groups to a work-stealing pool; nested groups are
+    // forked as they are discovered so they can run concurrently too
+    ForkJoinPool pool = new ForkJoinPool(this.parallelism);
 
-    return tree;
+    try {
+      pool.invoke(new RecursiveAction() {
+        @Override
+        protected void compute() {
+          GroupTask.runAll(groups, root, 0, context, true);
+        }
+      });
+    } finally {
+      pool.shutdown();
+    }
   }
 
   public DoublyLinkedList<String> resultStrings() {
@@ -90,88 +230,122 @@ public class Runner {
   }
 
   public DoublyLinkedList<String> resultStrings(boolean concise) {
-    ResultsStringParts res = this.results.reduce(
-      (parts, node, depth) -> {
-        Result result = node.getValue();
-
-        // pad groups with an empty line before them
-        if (!result.isTest()) {
-          // as long as the output is verbose
-          if (!concise) parts.statuses.append("");
-        }
-        // otherwise increment the test counter
-        else ++this.totalTests;
+    DoublyLinkedList<String> out = new DoublyLinkedList<String>();
 
-        if (!concise) {
-          // add the result's status string to the statuses list
-          parts.statuses.append(
-              result.statusString(this.indent.repeat(depth)));
-        }
+    try {
+      this.report(out::append, concise);
+    } catch (IOException exc) {
+      // appending to a list can't fail
+    }
 
-        try {
-          if (!result.didPass()) {
-            // if failure, add result's failure strings to failures list
-            result
-              .failureStrings()
-              .forEach((fnode, i) -> parts.failures.append(fnode.getValue()));
-            // and increment the failure counter
-            ++this.failedTests;
-          }
-        } catch (NotATestResult exc) {
-          // do nothing because the result is a group result & can't
-          // have a failure to report
-        }
+    return out;
+  }
+
+  // writes the report straight out, a line at a time, w/o building it up in
+  // memory first
+  public void writeResults(Writer out, boolean concise) throws IOException {
+    this.report(line -> {
+      out.write(line);
+      out.write('\n');
+    }, concise);
+  }
+
+  private void report(ReportLines out, boolean concise) throws IOException {
+    ArrayList<IOException> errors = new ArrayList<IOException>();
+    FailureReport failures = new FailureReport();
+
+    out.write("");
 
-        // return the updated list
-        return parts;
-      },
-      // start with empty statuses & failures lists
-      new ResultsStringParts());
+    this.results.forEach((node, depth) -> {
+      Result result = node.getValue();
 
-    res.statistics = this.statisticsStrings();
+      // failures are kept to show after every status
+      if (result.isTest() && result.progressChar() != '.') failures.add(result);
 
-    return res.compose();
+      if (concise || !errors.isEmpty()) return;
+
+      // add the result's status string, w/ groups padded w/ an empty line
+      // before them
+      String status = result.statusString(this.indent.repeat(depth));
+      // the root has nothing to report
+      if (this.timings && depth > 0)
+        status += " (" + result.timingString() + ")";
+
+      try {
+        if (!result.isTest()) out.write("");
+        out.write(status);
+      } catch (IOException exc) {
+        errors.add(exc);
+      }
+    });
+
+    if (!errors.isEmpty()) throw errors.get(0);
+
+    failures.write(out);
+
+    DoublyLinkedList<String> statistics = this.statisticsStrings();
+    if (this.slowest > 0) {
+      // results given rather than run are looked through now instead
+      Latencies latencies = this.latencies != null
+        ? this.latencies
+        : Latencies.of(this.results, this.slowest);
+      statistics = latencies.strings(this.indent).concat(statistics);
+    }
+    if (this.timings) statistics = this.timingStrings().concat(statistics);
+
+    for (String line : statistics) {
+      out.write(line);
+    }
+  }
+
+  // each top level group, slowest first, so it's clear which specs make the
+  // run slow
+  DoublyLinkedList<String> timingStrings() {
+    ArrayList<Result> groups = new ArrayList<Result>();
+    this.results.getChildren().forEach((node, i) -> groups.add(node.getValue()));
+    groups.sort((a, b) -> Long.compare(b.getNanos(), a.getNanos()));
+
+    DoublyLinkedList<String> out = new DoublyLinkedList<String>()
+      .append("")
+      .append("=".repeat(80))
+      .append("")
+      .append("Time taken by each top level group, slowest first:")
+      .append("");
+
+    groups.forEach(group -> out.append(
+      this.indent + group.getName() + " (" + group.timingString() + ")"));
+
+    return out;
   }
 
   DoublyLinkedList<String> statisticsStrings() {
-    int passed = this.totalTests - failedTests;
+    RunSummary summary = this.summary;
+    int passed = summary.getPassed();
+    int total = summary.getTests();
 
-    String stats = passed + "/" + this.totalTests + " tests passed";
+    String stats = passed + "/" + total + " tests passed";
 
     DecimalFormat df = new DecimalFormat("###.#%");
     String percPassed = df.format(
       Integer.valueOf(passed).floatValue()
-      / Integer.valueOf(this.totalTests).floatValue());
+      / Integer.valueOf(total).floatValue());
 
-    if (passed == this.totalTests)
+    if (passed == total)
       stats += "!";
     else
       stats += " (" + percPassed + ")";
 
-    return new DoublyLinkedList<String>()
+    DoublyLinkedList<String> out = new DoublyLinkedList<String>()
       .append("")
       .append("=".repeat(80))
       .append("")
-      .append(stats)
-      .append("");
-  }
-}
-
-class ResultsStringParts {
-  DoublyLinkedList<String> statuses;
-  DoublyLinkedList<String> failures;
-  DoublyLinkedList<String> statistics;
-
-  ResultsStringParts() {
-    this.statuses = new DoublyLinkedList<String>().append("");
-    this.failures = new DoublyLinkedList<String>();
-    this.statistics = new DoublyLinkedList<String>();
-  }
+      .append(stats);
 
-  DoublyLinkedList<String> compose() {
-    if (this.failures.getLength() > 0)
-      return this.statuses.concat(this.failures).concat(this.statistics);
+    if (this.stoppedEarly)
+      out.append(
+        "Stopped after " + summary.getFailures() + " failed test"
+        + (summary.getFailures() == 1 ? "" : "s") + ", the rest were not run");
 
-    return this.statuses.concat(this.statistics);
+    return out.append("");
   }
 }
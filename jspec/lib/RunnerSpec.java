@@ -1,5 +1,8 @@
 package jspec.lib;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 import jspec.utils.Node;
 import jspec.utils.list.DoublyLinkedList;
 import jspec.utils.ValueNotFound;
@@ -176,6 +179,436 @@ public class RunnerSpec extends Group {
         assert false : exc.getMessage();
       }
     }
+
+    public String descParallelSameOrder = "Running in parallel gives results in the same order as a serial run";
+    public void testParallelSameOrder() {
+      class G1 extends Group {
+        public void testATest() {
+          assert true;
+        }
+
+        class G2 extends Group {
+          public void testInner() {
+            assert false;
+          }
+        }
+
+        class G3 extends Group {
+          public void testInner() {
+            assert true;
+          }
+        }
+      }
+
+      class G4 extends Group {
+        public void testATest() {
+          assert true;
+        }
+      }
+
+      Runner serial = RunnerFactory.create().addGroup(new G1()).addGroup(new G4());
+      Runner parallel = RunnerFactory.create().addGroup(new G1()).addGroup(new G4())
+        .parallel(4);
+
+      // flatten each tree into a list of names, in traversal order
+      DoublyLinkedList<String> expected = serial.run(true).getResults().reduce(
+        (list, node, depth) -> list.append(depth + node.getValue().getCodeName()),
+        new DoublyLinkedList<String>());
+      DoublyLinkedList<String> actual = parallel.run(true).getResults().reduce(
+        (list, node, depth) -> list.append(depth + node.getValue().getCodeName()),
+        new DoublyLinkedList<String>());
+
+      assert actual.getLength() == expected.getLength()
+        : "parallel run should have " + expected.getLength() + " results, not " + actual.getLength();
+      expected.forEach((exp, idx) -> {
+        String actualVal = actual.get(idx).getValue();
+        assert actualVal.compareTo(exp.getValue()) == 0
+          : actualVal + " != " + exp.getValue();
+      });
+    }
+  }
+
+  public class FailFast extends Group {
+    public String desc = "A Runner can stop early after enough failures";
+
+    public String descStopsStartingTests = "No new tests or groups are started once the limit is reached";
+    public void testStopsStartingTests() {
+      class G1 extends Group {
+        public void testA() {
+          assert false;
+        }
+
+        public void testB() {
+          assert true;
+        }
+
+        class G2 extends Group {
+          public void testInner() {
+            assert true;
+          }
+        }
+      }
+
+      Runner r = RunnerFactory.create().addGroup(new G1()).maxFailures(1);
+      ResultsTree results = r.run(true).getResults();
+
+      assert r.stoppedEarly() : "runner should know it stopped early";
+      assert results.contains((node) -> node.getValue().getCodeName() == "testA")
+        : "the failed test should be reported";
+      assert !results.contains((node) -> node.getValue().getCodeName() == "testB")
+        : "tests after the failure shouldn't run";
+      assert !results.contains((node) -> node.getValue().getCodeName().contains("G2"))
+        : "groups after the failure shouldn't run";
+    }
+
+    public String descPartialSummary = "The summary says the run stopped early";
+    public void testPartialSummary() {
+      class G extends Group {
+        public void testA() {
+          assert false;
+        }
+
+        public void testB() {
+          assert false;
+        }
+      }
+
+      Runner r = RunnerFactory.create().addGroup(new G()).maxFailures(1);
+      DoublyLinkedList<String> lines = r.run(true).resultStrings(true);
+      String actual = lines.get(lines.getLength() - 2).getValue();
+
+      assert actual.contains("Stopped after 1 failed test")
+        : actual + " should say the run stopped early";
+    }
+  }
+
+  public class Listening extends Group {
+    public String desc = "A Runner tells listeners about results as they happen";
+
+    public String descEvents = "A listener is told about every run, group & test";
+    public void testEvents() {
+      class G1 extends Group {
+        public void testATest() {
+          assert true;
+        }
+
+        public void testAnother() {
+          assert false;
+        }
+
+        class G2 extends Group {
+          public void testInner() {
+            assert true;
+          }
+        }
+      }
+
+      class Counter implements RunListener {
+        DoublyLinkedList<String> events = new DoublyLinkedList<String>();
+
+        public void runStarted() { this.events.append("runStarted"); }
+        public void groupStarted(Result group, Result parent) { this.events.append("groupStarted"); }
+        public void testStarted(Result test, Result group) { this.events.append("testStarted"); }
+        public void testPassed(Result test, Result group) { this.events.append("testPassed"); }
+        public void testFailed(Result test, Result group) { this.events.append("testFailed"); }
+        public void groupFinished(Result group) { this.events.append("groupFinished"); }
+        public void runFinished() { this.events.append("runFinished"); }
+
+        int count(String event) {
+          return this.events.reduce(
+            (n, node, i) -> node.getValue().equals(event) ? n + 1 : n, 0);
+        }
+      }
+
+      Counter counter = new Counter();
+      RunnerFactory.create().addGroup(new G1()).addListener(counter).run(true);
+
+      assert counter.events.getHead().getValue().equals("runStarted")
+        : "first event should be runStarted";
+      assert counter.events.getTail().getValue().equals("runFinished")
+        : "last event should be runFinished";
+      assert counter.count("groupStarted") == 2 : "two groups should start";
+      assert counter.count("groupFinished") == 2 : "two groups should finish";
+      assert counter.count("testStarted") == 3 : "three tests should start";
+      assert counter.count("testPassed") == 2 : "two tests should pass";
+      assert counter.count("testFailed") == 1 : "one test should fail";
+    }
+
+    public String descResultsOptional = "Keeping a tree of results is optional";
+    public void testResultsOptional() {
+      class G extends Group {
+        public void testATest() {
+          assert true;
+        }
+      }
+
+      Runner r = RunnerFactory.create().addGroup(new G()).keepResults(false);
+
+      assert r.run(true).getResults() == null : "no results tree should be kept";
+    }
+  }
+
+  public class Forking extends Group {
+    public String desc = "A Runner can run each Group in its own JVM";
+
+    // a worker JVM loads the groups it runs from class files, on its class
+    // path or where the CLI compiled them to, so there's nothing to run in one
+    // when the specs were compiled in memory, e.g. w/ --in-memory; each test
+    // then passes w/o forking
+    boolean forkable() {
+      String extra = System.getProperty("jspec.class.path");
+
+      return Forked.class.getResource("Forked.class") != null
+        || (extra != null && Files.exists(Path.of(extra, "jspec", "lib", "Forked.class")));
+    }
+
+    public String descSameResults = "Results from a worker JVM are the same as from this one";
+    public void testSameResults() {
+      if (!this.forkable()) return;
+
+      Runner forked = RunnerFactory.create().addGroup(new Forked()).fork(1).run(true);
+      Runner local = RunnerFactory.create().addGroup(new Forked()).run(true);
+
+      assert this.withoutStacks(forked).equals(this.withoutStacks(local));
+    }
+
+    // the stacks failures were thrown from are different in each JVM, as is
+    // how many of their frames are hidden
+    String withoutStacks(Runner r) {
+      return r.resultStrings().reduce(
+        (out, node, i) -> node.getValue().startsWith("        ")
+          ? out
+          : out + node.getValue() + "\n",
+        "");
+    }
+
+    public String descOwnStatics = "Groups run in a worker JVM don't share this one's static state";
+    public void testOwnStatics() {
+      if (!this.forkable()) return;
+
+      int before = Forked.runs;
+      RunnerFactory.create().addGroup(new Forked()).fork(1).run(true);
+
+      assert Forked.runs == before : "the test should have run in another JVM";
+    }
+
+    public String descSurvivesCrash = "A crashed worker is replaced & its unfinished tests reported as errors";
+    public void testSurvivesCrash() throws NotATestResult, ValueNotFound {
+      if (!this.forkable()) return;
+
+      Runner r = RunnerFactory.create()
+        .addGroup(new ForkedCrash())
+        .addGroup(new Forked())
+        .fork(1)
+        .run(true);
+
+      Result before = r.getResults().find(n -> n.getValue().getCodeName().equals("testBefore")).getValue();
+      Result halts = r.getResults().find(n -> n.getValue().getCodeName().equals("testHalts")).getValue();
+      Result never = r.getResults().find(n -> n.getValue().getCodeName().equals("testNeverRun")).getValue();
+      Result after = r.getResults().find(n -> n.getValue().getCodeName().equals("testCounts")).getValue();
+
+      assert before.didPass() : "a test finished before the crash should keep its result";
+      assert halts.getFailureExc() instanceof WorkerCrash : "the test that crashed is an error";
+      assert never.getFailureExc() instanceof WorkerCrash : "tests never started are errors";
+      assert after.didPass() : "later groups should run on a new worker";
+    }
+
+    public String descLostPlaces = "Tests lost w/ a crashed worker keep their planned places, even w/ --isolate";
+    public void testLostPlaces() throws NotATestResult, ValueNotFound {
+      if (!this.forkable()) return;
+
+      Runner r = RunnerFactory.create()
+        .addGroup(new ForkedCrashIsolated())
+        .fork(1)
+        .isolate(3)
+        .run(true);
+
+      for (String name : new String[] { "testA", "testB", "testC" }) {
+        Result result = r.getResults().find(n -> n.getValue().getCodeName().equals(name)).getValue();
+        int planned = name.charAt(4) - 'A';
+
+        assert result.getOrdinal() == planned : name + " placed at " + result.getOrdinal();
+      }
+    }
+
+    public String descRunTimeout = "A worker stuck past the run's time limit is killed & its unfinished tests reported";
+    public void testRunTimeout() throws NotATestResult, ValueNotFound {
+      if (!this.forkable()) return;
+
+      long start = System.nanoTime();
+      Runner r = RunnerFactory.create()
+        .addGroup(new ForkedStuck())
+        .fork(1)
+        // long enough for the worker to start & run testBefore, even when
+        // the machine's busy
+        .timeouts(0, 0, 2000)
+        .run(true);
+      long millis = (System.nanoTime() - start) / 1_000_000;
+
+      Result before = r.getResults().find(n -> n.getValue().getCodeName().equals("testBefore")).getValue();
+      Result never = r.getResults().find(n -> n.getValue().getCodeName().equals("testNeverRun")).getValue();
+
+      assert before.didPass() : "a test finished in time should keep its result";
+      assert never.getFailureExc() instanceof WorkerCrash : "a test the worker never got to is an error";
+      assert never.getFailureExc().getMessage().contains("time limit");
+      assert millis < 2000 + ForkedPool.graceMillis + 3000 : "took " + millis + " ms";
+    }
+  }
+
+  public class Timings extends Group {
+    public String desc = "A Runner measures what each test & group used";
+
+    public String descTests = "Each test records its time, CPU time & memory allocated";
+    public void testTests() {
+      class G extends Group {
+        public byte[] kept;
+
+        public void testAllocates() {
+          this.kept = new byte[1024 * 1024];
+        }
+      }
+
+      Runner r = RunnerFactory.create().addGroup(new G()).run(true);
+      Result test = r.getResults().getRoot().getHeadChild().getHeadChild().getValue();
+
+      assert test.getNanos() > 0 : "the test took some time";
+      assert test.getCpuNanos() > 0 : "the test used some CPU";
+      assert test.getAllocatedBytes() >= 1024 * 1024 : "the test allocated at least 1 MB";
+    }
+
+    public String descGroups = "A group's totals include its tests, nested groups & hooks";
+    public void testGroups() {
+      class G1 extends Group {
+        public void before() {
+          try {
+            Thread.sleep(20);
+          } catch (InterruptedException exc) {}
+        }
+
+        public void testATest() {}
+
+        class G2 extends Group {
+          public byte[] kept;
+
+          public void testAllocates() {
+            this.kept = new byte[1024 * 1024];
+          }
+        }
+      }
+
+      Runner r = RunnerFactory.create().addGroup(new G1()).run(true);
+      Result outer = r.getResults().getRoot().getHeadChild().getValue();
+      Result inner = r.getResults().getRoot().getHeadChild().getTailChild().getValue();
+
+      assert outer.getHookNanos() >= 20_000_000 : "before() took at least 20 ms";
+      assert inner.getAllocatedBytes() >= 1024 * 1024 : "the nested test's memory counts";
+      assert outer.getAllocatedBytes() >= inner.getAllocatedBytes()
+        : "the nested group's memory counts";
+      assert outer.getNanos() >= inner.getNanos() : "the nested group's time counts";
+    }
+
+    public String descCutOff = "Tests cut off by their group's time running out still count towards it";
+    public void testCutOff() {
+      class G extends Group {
+        public long timeout = 50;
+
+        public void testOne() throws InterruptedException {
+          Thread.sleep(30);
+        }
+
+        public void testTwo() throws InterruptedException {
+          Thread.sleep(30);
+        }
+
+        public void testThree() throws InterruptedException {
+          Thread.sleep(30);
+        }
+
+        public void testFour() throws InterruptedException {
+          Thread.sleep(30);
+        }
+      }
+
+      Runner r = RunnerFactory.create().addGroup(new G()).run(true);
+      RunSummary group = r.getResults().getRoot().getHeadChild().getValue().getSummary();
+
+      // on a busy machine even the first test may run out of time
+      assert group.getTests() == 4 : group.getTests() + " tests counted";
+      assert group.getTimedOut() >= 3 : group.getTimedOut() + " timed out";
+      assert group.getPassed() + group.getTimedOut() == 4 : group.getPassed() + " passed";
+      assert r.getSummary().getTests() == 4 : "the run counts the same";
+    }
+
+    public String descReport = "Timings can be added to the report";
+    public void testReport() {
+      class G extends Group {
+        public void testATest() {}
+      }
+
+      Runner r = RunnerFactory.create().addGroup(new G()).timings(true).run(true);
+      String report = String.join("\n", r.resultStrings());
+
+      assert report.contains("testATest ✅ (") : "each result should give its timings";
+      assert report.contains("slowest first") : "groups should be listed slowest first";
+    }
+  }
+
+  public class Slowest extends Group {
+    public String desc = "A Runner can list the slowest tests & groups";
+
+    public String descListsSlowest = "Lists the slowest tests first, up to the limit";
+    public void testListsSlowest() {
+      class G extends Group {
+        public void testFast() {}
+
+        public void testSlow() throws InterruptedException {
+          Thread.sleep(30);
+        }
+
+        public void testSlower() throws InterruptedException {
+          Thread.sleep(60);
+        }
+      }
+
+      DoublyLinkedList<String> lines = RunnerFactory.create()
+        .addGroup(new G())
+        .slowest(2)
+        .run(true)
+        .resultStrings(true);
+      String actual = lines.reduce((out, line, i) -> out + line.getValue() + "\n", "");
+
+      int slower = actual.indexOf("testSlower");
+      int slow = actual.indexOf("testSlow (");
+      assert slower >= 0 && slow > slower : actual;
+      assert !actual.contains("testFast") : "only the 2 slowest are listed:\n" + actual;
+      assert actual.contains("G (3 tests: p50 ") : actual;
+    }
+
+    public String descSameWhenMerged = "Lists the same tests for results given rather than run";
+    public void testSameWhenMerged() {
+      class G extends Group {
+        public void testSlow() throws InterruptedException {
+          Thread.sleep(10);
+        }
+
+        public void testFast() {}
+      }
+
+      Runner run = RunnerFactory.create().addGroup(new G()).slowest(1).run(true);
+      Runner given = RunnerFactory.create().withResults(run.getResults()).slowest(1);
+
+      String expected = this.slowestOnly(run);
+      assert expected.contains("testSlow (") : expected;
+      assert this.slowestOnly(given).equals(expected);
+    }
+
+    // up to the border before the stats
+    String slowestOnly(Runner r) {
+      String report = r.resultStrings(true)
+        .reduce((out, line, i) -> out + line.getValue() + "\n", "");
+
+      return report.substring(report.indexOf("Slowest tests:"), report.lastIndexOf("====="));
+    }
   }
 
   public class Results extends Group {
@@ -351,6 +784,43 @@ public class RunnerSpec extends Group {
       assert actualVal.compareTo(expectedVal) == 0
         : position + ": " + actualVal + " != " + expectedVal;
     }
+
+    public String descReportTwice = "Reporting more than once gives the same stats each time";
+    public void testReportTwice() {
+      String first = String.join("\n", this.r.resultStrings(true));
+      String second = String.join("\n", this.r.resultStrings(true));
+
+      assert first.equals(second) : second;
+      assert second.contains("2/3 tests passed") : second;
+    }
+
+    public String descSummaries = "Counts the tests in the run & in each group as they finish";
+    public void testSummaries() {
+      RunSummary run = this.r.getSummary();
+      RunSummary outer = this.r.getResults().getChildren().getHead().getValue().getSummary();
+      RunSummary inner = this.r.getResults()
+        .getRoot().getHeadChild().getTailChild().getValue().getSummary();
+
+      assert run.getTests() == 3 && run.getPassed() == 2 && run.getFailed() == 1
+        : run.getPassed() + "/" + run.getTests();
+      assert this.r.getResults().getSummary().getTests() == 3 : "the tree counts the same";
+      assert outer.getTests() == 3 : "a group counts its nested groups' tests";
+      assert inner.getTests() == 1 && inner.getPassed() == 1 : "a nested group counts its own";
+    }
+
+    public String descFoldsSameTrace =
+      "Shows a failure shared by several tests once, w/ the names of the rest";
+    public void testFoldsSameTrace() {
+      Runner runner = RunnerFactory.create().addGroup(new BrokenSetup()).run(true);
+      String actual = runner.resultStrings(true).reduce(
+        (lines, line, i) -> lines + line.getValue() + "\n", "");
+
+      int shown = actual.split("FAILURE: ", -1).length - 1;
+      assert shown == 1 : shown + " failures shown in:\n" + actual;
+      assert actual.contains("2 more tests failed with the same trace:") : actual;
+      assert actual.contains("at jspec.lib.BrokenSetup.beforeEach") : actual;
+      assert actual.contains("0/3 tests passed") : actual;
+    }
   }
 }
 
@@ -359,3 +829,75 @@ class RunnerFactory {
     return new Runner();
   }
 }
+
+// top level so worker JVMs can create them by name
+class Forked extends Group {
+  static int runs = 0;
+
+  public void testCounts() {
+    ++Forked.runs;
+  }
+
+  public void testFails() {
+    assert false : "fails";
+  }
+}
+
+class BrokenSetup extends Group {
+  public void beforeEach() {
+    throw new IllegalStateException("broken setup");
+  }
+
+  public void testOne() {}
+  public void testTwo() {}
+  public void testThree() {}
+}
+
+// its nested group never gets past its static initializer in the worker,
+// which no interrupt can get it out of
+class ForkedStuck extends Group {
+  public void testBefore() {}
+
+  public class Stuck extends Group {
+    static {
+      ForkedStuck.hang();
+    }
+
+    public void testNeverRun() {}
+  }
+
+  static void hang() {
+    while (true) {
+      try {
+        Thread.sleep(1000);
+      } catch (InterruptedException exc) {
+        // ignored, as a stuck static initializer would
+      }
+    }
+  }
+}
+
+class ForkedCrash extends Group {
+  public void testBefore() {}
+
+  public void testHalts() {
+    Runtime.getRuntime().halt(3);
+  }
+
+  public void testNeverRun() {}
+}
+
+// the last test finishes first, before the worker crashes w/ the first
+// still running
+class ForkedCrashIsolated extends Group {
+  public void testA() throws InterruptedException {
+    Thread.sleep(10_000);
+  }
+
+  public void testB() throws InterruptedException {
+    Thread.sleep(500);
+    Runtime.getRuntime().halt(3);
+  }
+
+  public void testC() {}
+}
@@ -0,0 +1,214 @@
+package jspec.lib;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+class TestPlan {
+  static MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+  // plans are built the first time a class is visited & kept for as long as
+  // the class is loaded, so later visits don't need any reflection
+  private static ClassValue<TestPlan> plans = new ClassValue<TestPlan>() {
+    @Override
+    protected TestPlan computeValue(Class<?> type) {
+      return new TestPlan(type);
+    }
+  };
+
+  final Class<?> type;
+  // tests, sorted by name so every run sees them in the same order
+  final List<PlannedTest> tests;
+  final List<PlannedGroup> children;
+  // getters for the group's own `desc` & `timeout` fields, may be null
+  final MethodHandle desc;
+  final MethodHandle timeout;
+  // builds a new top level instance, null if the class has no such constructor
+  final MethodHandle create;
+  // which lifecycle hooks are actually defined, the rest can be skipped
+  final boolean hasBefore;
+  final boolean hasBeforeEach;
+  final boolean hasAfterEach;
+  final boolean hasAfter;
+
+  static TestPlan of(Class<?> type) {
+    return TestPlan.plans.get(type);
+  }
+
+  private TestPlan(Class<?> type) {
+    this.type = type;
+
+    ArrayList<PlannedTest> tests = new ArrayList<PlannedTest>();
+    for (Method method : type.getDeclaredMethods()) {
+      if (method.getName().startsWith(Group.testPrefix))
+        tests.add(new PlannedTest(method));
+    }
+    tests.sort((a, b) -> a.name.compareTo(b.name));
+    this.tests = Collections.unmodifiableList(tests);
+
+    ArrayList<PlannedGroup> children = new ArrayList<PlannedGroup>();
+    for (Class<?> nested : type.getDeclaredClasses()) {
+      if (Group.class.isAssignableFrom(nested))
+        children.add(new PlannedGroup(nested, type));
+    }
+    this.children = Collections.unmodifiableList(children);
+
+    this.desc = TestPlan.publicGetter(type, "desc", String.class);
+    this.timeout = TestPlan.publicGetter(type, "timeout", Number.class);
+    this.create = TestPlan.constructor(type);
+
+    this.hasBefore = TestPlan.overrides(type, "before");
+    this.hasBeforeEach = TestPlan.overrides(type, "beforeEach");
+    this.hasAfterEach = TestPlan.overrides(type, "afterEach");
+    this.hasAfter = TestPlan.overrides(type, "after");
+  }
+
+  PlannedGroup child(Class<?> type) {
+    for (PlannedGroup child : this.children) {
+      if (child.type == type) return child;
+    }
+
+    return null;
+  }
+
+  // a getter of type (Group)Object for a field declared on the given class,
+  // or null if there's no such field or it can't be read as the given type
+  static MethodHandle declaredGetter(Class<?> type, String name, Class<?> valueType) {
+    try {
+      return TestPlan.getter(type.getDeclaredField(name), valueType);
+    } catch (NoSuchFieldException exc) {
+      return null;
+    } catch (IllegalAccessException exc) {
+      return null;
+    }
+  }
+
+  private static MethodHandle publicGetter(Class<?> type, String name, Class<?> valueType) {
+    try {
+      return TestPlan.getter(type.getField(name), valueType);
+    } catch (NoSuchFieldException exc) {
+      return null;
+    } catch (IllegalAccessException exc) {
+      System.err.println("Warning: the `" + name + "` field on a test Group must be public for it to be used by the test Runner.");
+      return null;
+    }
+  }
+
+  private static MethodHandle getter(Field field, Class<?> valueType)
+    throws IllegalAccessException
+  {
+    // primitive numbers are boxed by asType, so they count as Numbers too
+    Class<?> fieldType = field.getType();
+    boolean readable = valueType.isAssignableFrom(fieldType)
+      || (valueType == Number.class && fieldType.isPrimitive()
+        && fieldType != boolean.class && fieldType != char.class);
+
+    if (!readable || Modifier.isStatic(field.getModifiers())) return null;
+
+    return TestPlan.lookup
+      .unreflectGetter(field)
+      .asType(MethodType.methodType(Object.class, Group.class));
+  }
+
+  private static MethodHandle constructor(Class<?> type) {
+    try {
+      Constructor<?> constructor = type.getDeclaredConstructor();
+
+      return TestPlan.lookup
+        .unreflectConstructor(constructor)
+        .asType(MethodType.methodType(Group.class));
+    } catch (NoSuchMethodException exc) {
+      return null;
+    } catch (IllegalAccessException exc) {
+      return null;
+    }
+  }
+
+  private static boolean overrides(Class<?> type, String hook) {
+    try {
+      return type.getMethod(hook).getDeclaringClass() != Group.class;
+    } catch (NoSuchMethodException exc) {
+      return false;
+    }
+  }
+
+  static class PlannedTest {
+    final String name;
+    // (Group)void, null if the test method can't be called
+    final MethodHandle invoker;
+    // why the test can't be called, if it can't
+    final Throwable error;
+    // getters for the test's `desc<Name>` & `timeout<Name>` fields, may be null
+    final MethodHandle desc;
+    final MethodHandle timeout;
+
+    PlannedTest(Method test) {
+      this.name = test.getName();
+
+      MethodHandle invoker = null;
+      Throwable error = null;
+
+      try {
+        invoker = TestPlan.lookup.unreflect(test);
+        // a static test ignores the instance it's given
+        if (Modifier.isStatic(test.getModifiers()))
+          invoker = MethodHandles.dropArguments(invoker, 0, Group.class);
+        // any return value is thrown away
+        invoker = invoker.asType(MethodType.methodType(void.class, Group.class));
+      } catch (IllegalAccessException exc) {
+        invoker = null;
+        error = exc;
+      } catch (RuntimeException exc) {
+        // e.g. a test that takes arguments can't be adapted to (Group)void
+        invoker = null;
+        error = exc;
+      }
+
+      this.invoker = invoker;
+      this.error = error;
+
+      String withoutPrefix = this.name.substring(Group.testPrefix.length());
+      Class<?> type = test.getDeclaringClass();
+      this.desc = TestPlan.declaredGetter(
+        type, Group.descPrefix + withoutPrefix, String.class);
+      this.timeout = TestPlan.declaredGetter(
+        type, Group.timeoutPrefix + withoutPrefix, Number.class);
+    }
+  }
+
+  static class PlannedGroup {
+    final Class<?> type;
+    // (Group)Group, building the nested group from its enclosing instance;
+    // null if that isn't possible
+    final MethodHandle constructor;
+    // why the nested group can't be built, if it can't
+    final ReflectiveOperationException error;
+
+    PlannedGroup(Class<?> type, Class<?> enclosing) {
+      this.type = type;
+
+      MethodHandle constructor = null;
+      ReflectiveOperationException error = null;
+
+      try {
+        constructor = TestPlan.lookup
+          .unreflectConstructor(type.getDeclaredConstructor(enclosing))
+          .asType(MethodType.methodType(Group.class, Group.class));
+      } catch (NoSuchMethodException exc) {
+        error = exc;
+      } catch (IllegalAccessException exc) {
+        error = exc;
+      }
+
+      this.constructor = constructor;
+      this.error = error;
+    }
+  }
+}
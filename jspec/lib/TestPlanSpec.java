@@ -0,0 +1,64 @@
+package jspec.lib;
+
+public class TestPlanSpec extends Group {
+  public String desc = "class: lib.TestPlan";
+
+  public static void main(String[] args) {
+    TestPlanSpec spec = new TestPlanSpec();
+    new Runner(spec)
+      .run(false)
+      .resultStrings()
+      .forEach((node, i) -> System.out.println(node.getValue()));
+  }
+
+  public String descBuiltOnce = "A class's plan is only built once";
+  public void testBuiltOnce() {
+    class Planned extends Group {}
+
+    assert TestPlan.of(Planned.class) == TestPlan.of(Planned.class);
+  }
+
+  public String descSortsTests = "A plan's tests are sorted by name";
+  public void testSortsTests() {
+    class Planned extends Group {
+      public void testC() {}
+      public void testA() {}
+      public void testB() {}
+      public void notATest() {}
+    }
+
+    TestPlan plan = TestPlan.of(Planned.class);
+
+    assert plan.tests.size() == 3 : "only test methods should be planned";
+    assert plan.tests.get(0).name.equals("testA");
+    assert plan.tests.get(1).name.equals("testB");
+    assert plan.tests.get(2).name.equals("testC");
+  }
+
+  public String descFindsHooks = "A plan knows which lifecycle hooks a Group defines";
+  public void testFindsHooks() {
+    class Planned extends Group {
+      public void beforeEach() {}
+    }
+
+    TestPlan plan = TestPlan.of(Planned.class);
+
+    assert !plan.hasBefore : "before() isn't defined";
+    assert plan.hasBeforeEach : "beforeEach() is defined";
+    assert !plan.hasAfterEach : "afterEach() isn't defined";
+    assert !plan.hasAfter : "after() isn't defined";
+  }
+
+  public String descFindsNested = "A plan knows how to build a Group's nested Groups";
+  public void testFindsNested() {
+    class Planned extends Group {
+      class Nested extends Group {}
+    }
+
+    TestPlan plan = TestPlan.of(Planned.class);
+
+    assert plan.children.size() == 1 : "there should be one nested group";
+    assert plan.child(Planned.Nested.class).constructor != null
+      : "the nested group should have a constructor";
+  }
+}
@@ -0,0 +1,20 @@
+package jspec.lib;
+
+public class TestTimeout extends Exception {
+  TestTimeout() {
+    super("Test not started, its group or run reached its time limit first");
+    this.setStackTrace(new StackTraceElement[0]);
+  }
+
+  TestTimeout(long millis, Thread stuck) {
+    super("Test did not finish within " + millis + " ms, abandoned " + stuck.getName() + " at");
+    // report where the test was stuck rather than where the watchdog was
+    this.setStackTrace(stuck.getStackTrace());
+  }
+
+  // a timeout read back from a saved run
+  TestTimeout(String message, StackTraceElement[] trace) {
+    super(message);
+    this.setStackTrace(trace);
+  }
+}
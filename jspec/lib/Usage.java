@@ -0,0 +1,56 @@
+package jspec.lib;
+
+import java.lang.management.ManagementFactory;
+
+// Measures the CPU time used & the bytes allocated by the current thread
+// between start() & stop(). Either is counted as 0 if the JVM can't measure it.
+class Usage {
+  private static com.sun.management.ThreadMXBean threads = Usage.threads();
+  private static boolean cpu = Usage.threads != null
+    && Usage.threads.isCurrentThreadCpuTimeSupported()
+    && Usage.threads.isThreadCpuTimeEnabled();
+  private static boolean allocation = Usage.threads != null
+    && Usage.threads.isThreadAllocatedMemorySupported()
+    && Usage.threads.isThreadAllocatedMemoryEnabled();
+
+  private long wallStart;
+  private long cpuStart;
+  private long bytesStart;
+
+  private static com.sun.management.ThreadMXBean threads() {
+    java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    return threads instanceof com.sun.management.ThreadMXBean
+      ? (com.sun.management.ThreadMXBean)threads
+      : null;
+  }
+
+  static Usage start() {
+    Usage usage = new Usage();
+    usage.wallStart = System.nanoTime();
+    usage.cpuStart = Usage.threadCpuNanos();
+    usage.bytesStart = Usage.threadAllocatedBytes();
+
+    return usage;
+  }
+
+  long wallNanos() {
+    return System.nanoTime() - this.wallStart;
+  }
+
+  long cpuNanos() {
+    return Usage.threadCpuNanos() - this.cpuStart;
+  }
+
+  long allocatedBytes() {
+    return Usage.threadAllocatedBytes() - this.bytesStart;
+  }
+
+  private static long threadCpuNanos() {
+    return Usage.cpu ? Usage.threads.getCurrentThreadCpuTime() : 0;
+  }
+
+  private static long threadAllocatedBytes() {
+    return Usage.allocation ? Usage.threads.getCurrentThreadAllocatedBytes() : 0;
+  }
+}
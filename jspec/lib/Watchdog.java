@@ -0,0 +1,22 @@
+package jspec.lib;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+class Watchdog {
+  // one timer thread is shared by every test in the JVM
+  static ScheduledExecutorService scheduler =
+    Executors.newSingleThreadScheduledExecutor(
+      RunContext.daemonThreads("jspec-watchdog-"));
+  // tests w/ a time limit run here so the thread waiting on them can give
+  // up; abandoned threads are simply left behind, as daemons
+  static ExecutorService workers =
+    Executors.newCachedThreadPool(RunContext.daemonThreads("jspec-timed-"));
+
+  static ScheduledFuture<?> watch(long millis, Runnable onTimeout) {
+    return Watchdog.scheduler.schedule(onTimeout, millis, TimeUnit.MILLISECONDS);
+  }
+}
@@ -0,0 +1,9 @@
+package jspec.lib;
+
+public class WorkerCrash extends Exception {
+  WorkerCrash(String reason, String className) {
+    super(reason + " while running " + className + ", so this test never finished");
+    // the stack of the worker's parent says nothing about the test
+    this.setStackTrace(new StackTraceElement[0]);
+  }
+}
@@ -0,0 +1,115 @@
+package jspec.utils;
+
+import java.util.Arrays;
+
+// Counts values, e.g. test times in nanoseconds, in buckets that get wider as
+// the values get bigger, so any percentile can be read back to w/in about 3%
+// from a small array of counts however many values are recorded. The count,
+// total, min & max are exact.
+public class Histogram {
+  // each power of two is split into this many buckets; values below it get a
+  // bucket each
+  private static final int precision = 5;
+  private static final int subBuckets = 1 << Histogram.precision;
+  private static final int maxIndex = Histogram.index(Long.MAX_VALUE);
+
+  // only grown as far as the largest value recorded needs
+  private long[] counts = new long[Histogram.subBuckets];
+  private long count = 0;
+  private long total = 0;
+  private long min = Long.MAX_VALUE;
+  private long max = 0;
+
+  // negative values are counted as 0
+  public Histogram record(long value) {
+    value = Math.max(value, 0);
+    int index = Histogram.index(value);
+
+    this.grow(index);
+    ++this.counts[index];
+    ++this.count;
+    this.total += value;
+    this.min = Math.min(this.min, value);
+    this.max = Math.max(this.max, value);
+
+    return this;
+  }
+
+  // adds every value recorded in the other histogram to this one
+  public Histogram add(Histogram other) {
+    if (other.count == 0) return this;
+
+    this.grow(other.counts.length - 1);
+    for (int i = 0; i < other.counts.length; i++) {
+      this.counts[i] += other.counts[i];
+    }
+
+    this.count += other.count;
+    this.total += other.total;
+    this.min = Math.min(this.min, other.min);
+    this.max = Math.max(this.max, other.max);
+
+    return this;
+  }
+
+  public long getCount() {
+    return this.count;
+  }
+
+  public long getTotal() {
+    return this.total;
+  }
+
+  public long getMin() {
+    return this.count == 0 ? 0 : this.min;
+  }
+
+  public long getMax() {
+    return this.max;
+  }
+
+  // the value at or below which the given percent of values fall, e.g. 99 for
+  // p99; 0 when nothing has been recorded
+  public long percentile(double percent) {
+    if (this.count == 0) return 0;
+
+    long rank = Math.max(1, (long) Math.ceil(percent / 100 * this.count));
+    long seen = 0;
+
+    for (int i = 0; i < this.counts.length; i++) {
+      seen += this.counts[i];
+      // the top of the bucket, but never outside what was actually recorded
+      if (seen >= rank)
+        return Math.max(this.min, Math.min(this.max, Histogram.highest(i)));
+    }
+
+    return this.max;
+  }
+
+  private void grow(int index) {
+    if (index < this.counts.length) return;
+
+    int length = Math.min(Math.max(index + 1, this.counts.length * 2), Histogram.maxIndex + 1);
+    this.counts = Arrays.copyOf(this.counts, length);
+  }
+
+  static int index(long value) {
+    if (value < Histogram.subBuckets) return (int) value;
+
+    // the top `precision + 1` bits of the value pick its bucket
+    int shift = 63 - Long.numberOfLeadingZeros(value) - Histogram.precision;
+    return (shift + 1) * Histogram.subBuckets
+      + (int) (value >>> shift) - Histogram.subBuckets;
+  }
+
+  // the largest value that falls in the bucket at the index
+  static long highest(int index) {
+    if (index < Histogram.subBuckets) return index;
+
+    int shift = index / Histogram.subBuckets - 1;
+    long top = Histogram.subBuckets + index % Histogram.subBuckets;
+
+    // wraps around to Long.MAX_VALUE for the very last bucket
+    return ((top + 1) << shift) - 1;
+  }
+}
@@ -0,0 +1,90 @@
+package jspec.utils;
+
+import jspec.lib.Group;
+import jspec.lib.Runner;
+
+public class HistogramSpec extends Group {
+  public String desc = "class: utils.Histogram";
+
+  public static void main(String[] args) {
+    HistogramSpec spec = new HistogramSpec();
+    new Runner(spec)
+      .run(false)
+      .resultStrings(false)
+      .forEach((node, i) -> System.out.println(node.getValue()));
+  }
+
+  public String descEmpty = "An empty Histogram has no values";
+  public void testEmpty() {
+    Histogram h = new Histogram();
+
+    assert h.getCount() == 0;
+    assert h.getMin() == 0;
+    assert h.getMax() == 0;
+    assert h.percentile(50) == 0;
+  }
+
+  public String descExactTotals = "A Histogram keeps an exact count, total, min & max";
+  public void testExactTotals() {
+    Histogram h = new Histogram().record(5).record(1_000_003).record(70);
+
+    assert h.getCount() == 3 : h.getCount();
+    assert h.getTotal() == 1_000_078 : h.getTotal();
+    assert h.getMin() == 5 : h.getMin();
+    assert h.getMax() == 1_000_003 : h.getMax();
+  }
+
+  public String descSmallValuesExact = "Percentiles of small values are exact";
+  public void testSmallValuesExact() {
+    Histogram h = new Histogram();
+    for (int i = 1; i <= 20; i++) h.record(i);
+
+    assert h.percentile(50) == 10 : h.percentile(50);
+    assert h.percentile(90) == 18 : h.percentile(90);
+    assert h.percentile(100) == 20 : h.percentile(100);
+  }
+
+  public String descLargeValuesClose = "Percentiles of large values are w/in about 3%";
+  public void testLargeValuesClose() {
+    Histogram h = new Histogram();
+    for (long i = 1; i <= 100_000; i++) h.record(i * 1_000);
+
+    long[][] expected = {{50, 50_000_000}, {90, 90_000_000}, {99, 99_000_000}};
+    for (long[] e : expected) {
+      long actual = h.percentile(e[0]);
+      double error = Math.abs(actual - e[1]) / (double) e[1];
+
+      assert error < 0.035 : "p" + e[0] + " was " + actual + ", expected about " + e[1];
+    }
+
+    assert h.percentile(100) == 100_000_000L : h.percentile(100);
+  }
+
+  public String descHugeValues = "A Histogram can record the largest possible value";
+  public void testHugeValues() {
+    Histogram h = new Histogram().record(Long.MAX_VALUE).record(1);
+
+    assert h.percentile(100) == Long.MAX_VALUE;
+    assert h.percentile(50) == 1;
+  }
+
+  public String descAdd = "Adding Histograms together gives the same result as recording everything in one";
+  public void testAdd() {
+    Histogram all = new Histogram();
+    Histogram a = new Histogram();
+    Histogram b = new Histogram();
+
+    for (long i = 0; i < 1_000; i++) {
+      all.record(i * i);
+      (i % 2 == 0 ? a : b).record(i * i);
+    }
+    a.add(b);
+
+    assert a.getCount() == all.getCount();
+    assert a.getTotal() == all.getTotal();
+    assert a.getMax() == all.getMax();
+    for (double p : new double[] {1, 50, 90, 99, 99.9}) {
+      assert a.percentile(p) == all.percentile(p) : "p" + p + " differs";
+    }
+  }
+}
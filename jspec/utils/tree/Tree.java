@@ -53,6 +53,24 @@ public class Tree<T> implements Iterable<T> {
     return this;
   }
 
+  public Tree<T> insertChildAfter(Node<T> sibling, Node<T> node) {
+    // no sibling to follow means the node goes first
+    if (sibling == null) return this.prependChild(node);
+
+    Node<T> next = sibling.getNextSibling();
+    sibling.addNextSibling(node);
+
+    if (next != null) {
+      node.addNextSibling(next);
+    } else {
+      this.root.addTailChild(node);
+    }
+
+    node.addParent(this.root);
+
+    return this;
+  }
+
   public DoublyLinkedList<T> getChildren() {
     return new DoublyLinkedList<T>(
       this.root.getHeadChild(),
@@ -92,6 +92,30 @@ public class TreeSpec extends Group {
       : root.getValue() + " != " + newChild.getParent().getValue();
   }
 
+  public String descInsertChildAfter = "Can insert a child after one of its siblings";
+  public void testInsertChildAfter() {
+    Tree<String> tree = TreeFactory.create();
+    Node<String> one = new Node<String>("one");
+    Node<String> two = new Node<String>("two");
+    Node<String> three = new Node<String>("three");
+    Node<String> zero = new Node<String>("zero");
+
+    tree.appendChild(one);
+    tree.insertChildAfter(one, three);
+    tree.insertChildAfter(one, two);
+    tree.insertChildAfter(null, zero);
+
+    DoublyLinkedList<String> children = tree.getChildren();
+
+    assert children.getLength() == 4 : "tree should have 4 children";
+    assert children.get(0) == zero : "zero should be first";
+    assert children.get(1) == one : "one should be second";
+    assert children.get(2) == two : "two should be third";
+    assert children.get(3) == three : "three should be last";
+    assert tree.getRoot().getTailChild() == three : "three should be the tail";
+    assert two.getParent() == tree.getRoot() : "two should know its parent";
+  }
+
   public String descAllChildren = "Can get doubly linked list of all children";
   public void testAllChildren() {
     Tree<String> tree = TreeFactory.create();